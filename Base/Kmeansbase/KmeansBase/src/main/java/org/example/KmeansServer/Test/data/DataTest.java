@@ -1,11 +1,20 @@
 package data;
 
+import database.Example;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import java.util.TreeSet;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Classe di test per la classe Data.
@@ -41,4 +50,145 @@ public class DataTest {
         DiscreteItem d = new DiscreteItem(new DiscreteAttribute("test", 0, new TreeSet<>()), "equalsString");
         assertEquals(0, d.distance("equalsString"));
     }
+
+    /**
+     * Crea un piccolo dataset in memoria con un attributo discreto e uno continuo.
+     *
+     * @return dataset con due esempi, il secondo con valori nulli.
+     */
+    private static Data sampleData() {
+        List<Attribute> attributes = new ArrayList<>();
+        attributes.add(new DiscreteAttribute("outlook", 0, new TreeSet<>(List.of("rain", "sunny"))));
+        attributes.add(new ContinuousAttribute("temperature", 1, 0, 30));
+        List<Example> examples = new ArrayList<>();
+        Example first = new Example();
+        first.add("sunny");
+        first.add(30.0);
+        examples.add(first);
+        Example second = new Example();
+        second.add(null);
+        second.add(null);
+        examples.add(second);
+        Example third = new Example();
+        third.add("rain");
+        third.add(15.0);
+        examples.add(third);
+        return new Data(attributes, examples);
+    }
+
+    /**
+     * Test per la memorizzazione per colonne di {@link Data}, valori nulli compresi.
+     */
+    @Test
+    void columnarStorageTest() {
+        Data data = sampleData();
+        assertEquals(3, data.getNumberOfExamples());
+        assertEquals("sunny", data.getAttributeValue(0, 0));
+        assertEquals(30.0, data.getAttributeValue(0, 1));
+        assertNull(data.getAttributeValue(1, 0));
+        assertNull(data.getAttributeValue(1, 1));
+    }
+
+    /**
+     * Test per il metodo {@link Data#distance(int, Tuple)}, che deve coincidere con {@link Tuple#getDistance(Tuple)}.
+     */
+    @Test
+    void rowDistanceTest() {
+        Data data = sampleData();
+        Tuple centroid = data.getItemSet(0);
+        for (int i = 0; i < data.getNumberOfExamples(); i++)
+            assertEquals(centroid.getDistance(data.getItemSet(i)), data.distance(i, centroid));
+        assertEquals(1.5, data.distance(2, centroid));
+    }
+
+    /**
+     * Test per {@link SufficientStatistics}: fondere le statistiche di due insiemi disgiunti
+     * deve produrre lo stesso centroide del calcolo diretto dei prototipi, e rimuovere una transazione
+     * deve aggiornarlo di conseguenza.
+     */
+    @Test
+    void sufficientStatisticsTest() {
+        Data data = sampleData();
+        SufficientStatistics first = new SufficientStatistics(data);
+        first.add(data, 0);
+        SufficientStatistics second = new SufficientStatistics(data);
+        second.add(data, 1);
+        second.add(data, 2);
+        first.merge(second);
+
+        Tuple centroid = data.getItemSet(1);
+        first.updateCentroid(centroid);
+        int[] rows = {0, 1, 2};
+        assertEquals(3, first.getSize());
+        assertEquals(data.computePrototype(rows, data.getAttribute(0)), centroid.get(0).getValue());
+        assertEquals(22.5, (Double) centroid.get(1).getValue(), 1e-9);
+
+        first.remove(data, 0);
+        first.updateCentroid(centroid);
+        assertEquals(2, first.getSize());
+        assertEquals("rain", centroid.get(0).getValue());
+        assertEquals(15.0, (Double) centroid.get(1).getValue(), 1e-9);
+    }
+
+    /**
+     * Test per il metodo {@link Data#sampling(int, Random)}: lo stesso seme produce la stessa scelta
+     * e con k pari al numero di esempi vengono scelti tutti gli esempi, una sola volta.
+     */
+    @Test
+    void seededSamplingTest() throws OutofRangeSampleSize {
+        Data data = sampleData();
+        assertArrayEquals(data.sampling(2, new Random(42)), data.sampling(2, new Random(42)));
+
+        int[] all = data.sampling(3, new Random(7));
+        Arrays.sort(all);
+        assertArrayEquals(new int[]{0, 1, 2}, all);
+        assertThrows(OutofRangeSampleSize.class, () -> data.sampling(4, new Random(7)));
+    }
+
+    /**
+     * Test per il metodo {@link Data#distance(int, Tuple, double)}: con una soglia non inferiore alla distanza deve
+     * restituire la distanza di {@link Data#distance(int, Tuple)} a meno dell'arrotondamento, altrimenti un valore
+     * maggiore della soglia.
+     */
+    @Test
+    void cutoffDistanceTest() {
+        Data data = SampleData.generated(1000, 5, 30, 0.1, 4);
+        for (int t = 0; t < 5; t++) {
+            Tuple tuple = data.getItemSet(t * 100 + 7);
+            for (int x = 0; x < data.getNumberOfExamples(); x++) {
+                double exact = data.distance(x, tuple);
+                double tolerance = exact * Data.ABANDON_TOLERANCE;
+                assertEquals(exact, data.distance(x, tuple, exact), tolerance);
+                assertEquals(exact, data.distance(x, tuple, 2 * exact + 1), tolerance);
+                if (exact > 0) {
+                    assertTrue(data.distance(x, tuple, exact / 2) > exact / 2);
+                    assertTrue(data.distance(x, tuple, 0) > 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test per il metodo {@link Data#distances(int, int, Tuple[], double[][], boolean)}: con e senza Vector API le
+     * distanze di un intervallo di transazioni non allineato alla lunghezza dei vettori devono coincidere con quelle
+     * di {@link Data#distance(int, Tuple)}. Richiede che la JVM sia avviata con
+     * {@code --add-modules jdk.incubator.vector}, altrimenti la Vector API non verrebbe usata.
+     */
+    @Test
+    void vectorizedDistancesTest() {
+        assertTrue(Data.isVectorApiAvailable());
+        Data data = SampleData.generated(1000, 5, 30, 0.1, 3);
+        Tuple[] tuples = new Tuple[5];
+        for (int t = 0; t < tuples.length; t++)
+            tuples[t] = data.getItemSet(t * 100);
+        int from = 3, to = 998;
+        for (boolean vectorized : new boolean[]{false, true}) {
+            double[][] distances = new double[tuples.length][to - from];
+            data.distances(from, to, tuples, distances, vectorized);
+            for (int t = 0; t < tuples.length; t++)
+                for (int x = from; x < to; x++)
+                    assertEquals(data.distance(x, tuples[t]), distances[t][x - from]);
+        }
+    }
 }
+
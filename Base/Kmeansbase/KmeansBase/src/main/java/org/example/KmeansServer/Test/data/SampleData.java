@@ -0,0 +1,135 @@
+package data;
+
+import database.Example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Dataset in memoria usati dai test dei package che non possono leggere una tabella dal database.
+ */
+public class SampleData {
+
+    private SampleData() {
+    }
+
+    /**
+     * Crea il dataset playtennis, con gli stessi valori della tabella omonima.
+     *
+     * @return dataset playtennis.
+     */
+    public static Data playtennis() {
+        return playtennis(false);
+    }
+
+    /**
+     * Crea il dataset playtennis, eventualmente con due transazioni in più che aggiungono il valore "fog" al dominio
+     * di outlook e portano a 45 il massimo della temperatura, così che la codifica del dataset cambi.
+     *
+     * @param foggy {@code true} per aggiungere le due transazioni.
+     *
+     * @return dataset playtennis.
+     */
+    public static Data playtennis(boolean foggy) {
+        String[][] rows = {
+                {"sunny", "30.3", "high", "weak", "no"}, {"sunny", "30.3", "high", "strong", "no"},
+                {"overcast", "30.0", "high", "weak", "yes"}, {"rain", "13.0", "high", "weak", "yes"},
+                {"rain", "0.0", "normal", "weak", "yes"}, {"rain", "0.0", "normal", "strong", "no"},
+                {"overcast", "0.1", "normal", "strong", "yes"}, {"sunny", "13.0", "high", "weak", "no"},
+                {"sunny", "0.1", "normal", "weak", "yes"}, {"rain", "12.0", "normal", "weak", "yes"},
+                {"sunny", "12.5", "normal", "strong", "yes"}, {"overcast", "12.5", "high", "strong", "yes"},
+                {"overcast", "29.21", "normal", "weak", "yes"}, {"rain", "12.5", "high", "strong", "no"}};
+        if (foggy) {
+            rows = Arrays.copyOf(rows, rows.length + 2);
+            rows[rows.length - 2] = new String[]{"fog", "45.0", "high", "weak", "no"};
+            rows[rows.length - 1] = new String[]{"fog", "5.0", "normal", "strong", "yes"};
+        }
+        TreeSet<String> outlooks = new TreeSet<>(List.of("sunny", "overcast", "rain"));
+        if (foggy)
+            outlooks.add("fog");
+        List<Attribute> attributes = new ArrayList<>();
+        attributes.add(new DiscreteAttribute("outlook", 0, outlooks));
+        attributes.add(new ContinuousAttribute("temperature", 1, 0.0, foggy ? 45.0 : 30.3));
+        attributes.add(new DiscreteAttribute("humidity", 2, new TreeSet<>(List.of("high", "normal"))));
+        attributes.add(new DiscreteAttribute("wind", 3, new TreeSet<>(List.of("weak", "strong"))));
+        attributes.add(new DiscreteAttribute("play", 4, new TreeSet<>(List.of("yes", "no"))));
+        List<Example> examples = new ArrayList<>();
+        for (String[] row : rows) {
+            Example example = new Example();
+            for (int i = 0; i < row.length; i++)
+                example.add(i == 1 ? (Object) Double.valueOf(row[i]) : row[i]);
+            examples.add(example);
+        }
+        return new Data(attributes, examples);
+    }
+
+    /**
+     * Crea un dataset con un solo attributo continuo, il cui intervallo va dal minimo al massimo dei valori.
+     *
+     * @param values valore di ogni transazione.
+     *
+     * @return dataset con una transazione per valore.
+     */
+    public static Data continuous(double... values) {
+        double min = Arrays.stream(values).min().orElse(0);
+        double max = Arrays.stream(values).max().orElse(0);
+        List<Example> examples = new ArrayList<>();
+        for (double value : values) {
+            Example example = new Example();
+            example.add(value);
+            examples.add(example);
+        }
+        return new Data(List.of(new ContinuousAttribute("x", 0, min, max)), examples);
+    }
+
+    /**
+     * Genera un dataset con due attributi continui e due discreti, le cui transazioni sono raggruppate attorno a
+     * un numero dato di centri: il centro c ha valori continui vicini a 100 * c e valori discreti "v" + c.
+     *
+     * @param rows numero di transazioni.
+     * @param centers numero di centri.
+     * @param spread deviazione standard dei valori continui attorno al centro.
+     * @param nullRate probabilità che un valore sia nullo.
+     * @param seed seme del generatore casuale.
+     *
+     * @return dataset generato.
+     */
+    public static Data generated(int rows, int centers, double spread, double nullRate, long seed) {
+        Random random = new Random(seed);
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        List<Example> examples = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            int center = random.nextInt(centers);
+            Example example = new Example();
+            for (int j = 0; j < 2; j++) {
+                if (random.nextDouble() < nullRate) {
+                    example.add(null);
+                    continue;
+                }
+                double value = 100.0 * center + 10.0 * j + random.nextGaussian() * spread;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                example.add(value);
+            }
+            for (int j = 0; j < 2; j++) {
+                if (random.nextDouble() < nullRate)
+                    example.add(null);
+                else
+                    example.add("v" + (random.nextDouble() < 0.8 ? center : random.nextInt(centers)));
+            }
+            examples.add(example);
+        }
+        TreeSet<String> values = new TreeSet<>();
+        for (int c = 0; c < centers; c++)
+            values.add("v" + c);
+        List<Attribute> attributes = new ArrayList<>();
+        attributes.add(new ContinuousAttribute("x", 0, min, max));
+        attributes.add(new ContinuousAttribute("y", 1, min, max));
+        attributes.add(new DiscreteAttribute("a", 2, values));
+        attributes.add(new DiscreteAttribute("b", 3, values));
+        return new Data(attributes, examples);
+    }
+}
@@ -1,9 +1,25 @@
 package mining;
 
 import data.Data;
+import data.OutofRangeSampleSize;
+import data.SampleData;
+import data.Tuple;
+import database.Example;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Classe di test per il package mining.
@@ -27,4 +43,460 @@ public class MiningTest {
         assertDoesNotThrow(() -> new KmeansMiner(3).save("playtennis_3"));
     }
 
+    /**
+     * Test per {@link KmeansMiner#encodeCentroids(Data)}: i centroidi caricati da file vengono ricodificati sul
+     * dataset in uso, la cui codifica è cambiata, con gli stessi valori.
+     */
+    @Test
+    void loadedCentroidsEncodingTest() throws Exception {
+        Data data = SampleData.playtennis(true);
+        KmeansMiner kmeansMiner = new KmeansMiner("saves/playtennis_3.dat");
+        ClusterSet clusters = kmeansMiner.getC();
+        Tuple[] saved = new Tuple[clusters.getNumberOfClusters()];
+        for (int c = 0; c < saved.length; c++) {
+            saved[c] = clusters.get(c).getCentroid();
+            assertFalse(data.isEncoded(saved[c]));
+        }
+
+        kmeansMiner.encodeCentroids(data);
+        for (int c = 0; c < saved.length; c++) {
+            Tuple centroid = clusters.get(c).getCentroid();
+            assertTrue(data.isEncoded(centroid));
+            assertEquals(saved[c].toString(), centroid.toString());
+            Tuple expected = data.getItemSet(saved[c]);
+            for (int i = 0; i < data.getNumberOfExamples(); i++)
+                assertEquals(data.distance(i, expected), data.distance(i, centroid));
+        }
+    }
+
+    /**
+     * Test per {@link OnlineKmeans} su un clustering caricato da file e un dataset la cui codifica è cambiata: ogni
+     * transazione viene assegnata al centroide più vicino secondo i centroidi ricodificati sul dataset in uso.
+     */
+    @Test
+    void onlineFromFileTest() throws Exception {
+        Data data = SampleData.playtennis(true);
+        for (int i = 0; i < data.getNumberOfExamples(); i++) {
+            KmeansMiner kmeansMiner = new KmeansMiner("saves/playtennis_3.dat");
+            ClusterSet clusters = kmeansMiner.getC();
+            int nearest = 0;
+            double nearestDistance = Double.MAX_VALUE;
+            for (int c = 0; c < clusters.getNumberOfClusters(); c++) {
+                double d = data.distance(i, data.getItemSet(clusters.get(c).getCentroid()));
+                if (d < nearestDistance) {
+                    nearestDistance = d;
+                    nearest = c;
+                }
+            }
+            Example example = new Example();
+            for (int j = 0; j < data.getNumberOfAttributes(); j++)
+                example.add(data.getAttributeValue(i, j));
+            assertEquals(nearest, new OnlineKmeans(kmeansMiner, data, 0).add(example));
+        }
+    }
+
+    /**
+     * Test per {@link ClusterSet#toString(Data)}: la riga AvgDistance di ogni cluster contiene solo la distanza media,
+     * come si aspettano i client che la leggono, sia con le distanze conservate da K-means sia con quelle ricalcolate
+     * dopo il caricamento da file.
+     */
+    @Test
+    void averageDistanceLineTest() throws IOException, ClassNotFoundException, OutofRangeSampleSize {
+        Data data = SampleData.playtennis();
+        KmeansMiner kmeansMiner = new KmeansMiner(3);
+        kmeansMiner.kmeans(data);
+        File file = File.createTempFile("playtennis_3", ".dat");
+        file.deleteOnExit();
+        kmeansMiner.save(file.getPath());
+        for (KmeansMiner rendered : new KmeansMiner[]{kmeansMiner, new KmeansMiner(file.getPath())}) {
+            int lines = 0;
+            for (String line : rendered.getC().toString(data).split("\n")) {
+                if (line.startsWith("AvgDistance=")) {
+                    assertDoesNotThrow(() -> Double.parseDouble(line.substring("AvgDistance=".length())));
+                    lines++;
+                }
+            }
+            assertEquals(3, lines);
+        }
+    }
+
+    /**
+     * Esegue K-means su un dataset con un motore di assegnazione.
+     *
+     * @param data dataset.
+     * @param k numero di cluster.
+     * @param engine motore di assegnazione.
+     *
+     * @return clustering calcolato.
+     */
+    private static KmeansMiner run(Data data, int k, ENGINE_TYPE engine) throws OutofRangeSampleSize {
+        KmeansMiner kmeansMiner = new KmeansMiner(k);
+        kmeansMiner.setSeed(11);
+        kmeansMiner.setParallelism(2);
+        kmeansMiner.setEngine(engine);
+        kmeansMiner.kmeans(data);
+        return kmeansMiner;
+    }
+
+    /**
+     * Verifica che due clustering assegnino le stesse tuple agli stessi cluster.
+     *
+     * @param expected clustering atteso.
+     * @param actual clustering da verificare.
+     */
+    private static void assertSameClusters(ClusterSet expected, ClusterSet actual) {
+        assertEquals(expected.getNumberOfClusters(), actual.getNumberOfClusters());
+        for (int c = 0; c < expected.getNumberOfClusters(); c++)
+            assertArrayEquals(expected.get(c).getClusteredData(), actual.get(c).getClusteredData());
+    }
+
+    /**
+     * Test per i motori di assegnazione: su un dataset con valori nulli, ogni motore deve produrre le stesse
+     * assegnazioni di Lloyd, con lo stesso numero d'iterazioni e di tuple spostate a ogni iterazione.
+     */
+    @Test
+    void enginesMatchLloydTest() throws OutofRangeSampleSize {
+        Data data = SampleData.generated(10000, 6, 40, 0.05, 1);
+        KmeansMiner lloyd = run(data, 8, ENGINE_TYPE.LLOYD);
+        for (ENGINE_TYPE engine : ENGINE_TYPE.values()) {
+            KmeansMiner kmeansMiner = run(data, 8, engine);
+            assertEquals(lloyd.getMovedRows(), kmeansMiner.getMovedRows());
+            assertSameClusters(lloyd.getC(), kmeansMiner.getC());
+        }
+    }
+
+    /**
+     * Test per l'assegnazione a blocchi di tuple e centroidi con la Vector API: deve produrre le stesse assegnazioni e
+     * lo stesso numero d'iterazioni dell'assegnazione di una tupla alla volta. Richiede che la JVM sia avviata con
+     * {@code --add-modules jdk.incubator.vector}, altrimenti i due clustering userebbero lo stesso calcolo.
+     */
+    @Test
+    void vectorizedMatchesScalarTest() throws OutofRangeSampleSize {
+        assertTrue(Data.isVectorApiAvailable());
+        Data data = SampleData.generated(10000, 6, 40, 0.05, 2);
+        KmeansMiner[] kmeansMiners = new KmeansMiner[2];
+        for (int i = 0; i < kmeansMiners.length; i++) {
+            kmeansMiners[i] = new KmeansMiner(8);
+            kmeansMiners[i].setSeed(11);
+            kmeansMiners[i].setParallelism(2);
+            kmeansMiners[i].setVectorized(i == 1);
+            kmeansMiners[i].kmeans(data);
+        }
+        KmeansMiner scalar = kmeansMiners[0], vectorized = kmeansMiners[1];
+        assertEquals(scalar.getMovedRows(), vectorized.getMovedRows());
+        assertSameClusters(scalar.getC(), vectorized.getC());
+        assertEquals(scalar.getTotalDistance(), vectorized.getTotalDistance(), 1e-9);
+    }
+
+    /**
+     * Restituisce i centroidi scelti da un modo d'inizializzazione con un seme.
+     *
+     * @param data dataset.
+     * @param k numero di centroidi.
+     * @param seeding modo d'inizializzazione.
+     * @param rounds numero di turni di k-means||.
+     * @param seed seme del generatore casuale.
+     * @param parallelism numero di thread.
+     *
+     * @return indici delle transazioni scelte come centroidi.
+     */
+    private static int[] seed(Data data, int k, SEEDING_TYPE seeding, int rounds, long seed, int parallelism)
+            throws OutofRangeSampleSize {
+        try (ChunkExecutor executor = new ChunkExecutor(parallelism)) {
+            return CentroidSeeding.centroidIndexes(data, k, seeding, rounds, 2, new Random(seed), executor);
+        }
+    }
+
+    /**
+     * Verifica che i centroidi scelti siano tutti diversi tra loro.
+     *
+     * @param data dataset.
+     * @param centroidIndexes indici delle transazioni scelte come centroidi.
+     */
+    private static void assertDistinctCentroids(Data data, int[] centroidIndexes) {
+        Set<String> centroids = new HashSet<>();
+        for (int i : centroidIndexes)
+            assertTrue(centroids.add(data.getItemSet(i).toString()), "duplicate centroid " + data.getItemSet(i));
+    }
+
+    /**
+     * Restituisce il numero di transazioni distinte di un dataset.
+     *
+     * @param data dataset.
+     *
+     * @return numero di transazioni distinte.
+     */
+    private static int distinctRows(Data data) {
+        Set<String> rows = new HashSet<>();
+        for (int i = 0; i < data.getNumberOfExamples(); i++)
+            rows.add(data.getItemSet(i).toString());
+        return rows.size();
+    }
+
+    /**
+     * Test per k-means++: lo stesso seme sceglie gli stessi centroidi, con qualunque grado di parallelismo, e finché
+     * k non supera il numero di transazioni distinte non sceglie due volte la stessa transazione.
+     */
+    @Test
+    void kmeansPlusPlusSeedingTest() throws OutofRangeSampleSize {
+        Data data = SampleData.generated(10000, 6, 40, 0.05, 3);
+        int[] centroidIndexes = seed(data, 8, SEEDING_TYPE.KMEANS_PLUS_PLUS, 0, 5, 1);
+        assertArrayEquals(centroidIndexes, seed(data, 8, SEEDING_TYPE.KMEANS_PLUS_PLUS, 0, 5, 1));
+        assertArrayEquals(centroidIndexes, seed(data, 8, SEEDING_TYPE.KMEANS_PLUS_PLUS, 0, 5, 3));
+
+        Data duplicated = SampleData.generated(3000, 3, 0, 0, 4);
+        int distinct = distinctRows(duplicated);
+        for (long seed = 0; seed < 10; seed++)
+            assertDistinctCentroids(duplicated, seed(duplicated, distinct, SEEDING_TYPE.KMEANS_PLUS_PLUS, 0, seed, 2));
+    }
+
+    /**
+     * Test per k-means||: lo stesso seme sceglie gli stessi centroidi, con qualunque grado di parallelismo, e finché
+     * k non supera il numero di transazioni distinte non sceglie due volte la stessa transazione, anche quando i
+     * turni estraggono meno di k candidate distinte.
+     */
+    @Test
+    void kmeansParallelSeedingTest() throws OutofRangeSampleSize {
+        Data data = SampleData.generated(10000, 6, 40, 0.05, 3);
+        int[] centroidIndexes = seed(data, 8, SEEDING_TYPE.KMEANS_PARALLEL, 5, 5, 1);
+        assertArrayEquals(centroidIndexes, seed(data, 8, SEEDING_TYPE.KMEANS_PARALLEL, 5, 5, 1));
+        assertArrayEquals(centroidIndexes, seed(data, 8, SEEDING_TYPE.KMEANS_PARALLEL, 5, 5, 3));
+
+        Data duplicated = SampleData.generated(3000, 3, 0, 0, 4);
+        int distinct = distinctRows(duplicated);
+        for (long seed = 0; seed < 10; seed++) {
+            assertDistinctCentroids(duplicated, seed(duplicated, distinct, SEEDING_TYPE.KMEANS_PARALLEL, 5, seed, 2));
+            assertDistinctCentroids(duplicated, seed(duplicated, distinct, SEEDING_TYPE.KMEANS_PARALLEL, 0, seed, 2));
+        }
+    }
+
+    /**
+     * Test per {@link KmeansMiner#warmStart(Data)}: la ripresa da un clustering già convergente sullo stesso dataset
+     * si arresta dopo una sola iterazione, con le stesse assegnazioni.
+     */
+    @Test
+    void warmStartTest() throws OutofRangeSampleSize {
+        Data data = SampleData.generated(10000, 6, 40, 0.05, 2);
+        KmeansMiner kmeansMiner = run(data, 8, ENGINE_TYPE.LLOYD);
+        ClusterSet converged = kmeansMiner.getC();
+        assertEquals(1, kmeansMiner.warmStart(data));
+        assertSameClusters(converged, kmeansMiner.getC());
+    }
+
+    /**
+     * Test per i criteri di arresto: con un numero massimo d'iterazioni o una frazione minima di tuple spostate,
+     * K-means ripete le prime iterazioni dell'esecuzione completa e si arresta alla prima che soddisfa il criterio.
+     * I valori fuori dall'intervallo ammesso vengono rifiutati.
+     */
+    @Test
+    void stoppingCriteriaTest() throws OutofRangeSampleSize {
+        Data data = SampleData.generated(10000, 6, 40, 0.05, 2);
+        List<Integer> movedRows = run(data, 8, ENGINE_TYPE.LLOYD).getMovedRows();
+
+        KmeansMiner limited = new KmeansMiner(8);
+        limited.setSeed(11);
+        limited.setParallelism(2);
+        limited.setMaxIterations(3);
+        assertEquals(3, limited.kmeans(data));
+        assertEquals(movedRows.subList(0, 3), limited.getMovedRows());
+
+        double minMoved = 0.01;
+        int expected = 1;
+        while (movedRows.get(expected - 1) >= minMoved * data.getNumberOfExamples())
+            expected++;
+        assertTrue(expected > 1 && expected < movedRows.size());
+        KmeansMiner early = new KmeansMiner(8);
+        early.setSeed(11);
+        early.setParallelism(2);
+        early.setMinMovedFraction(minMoved);
+        assertEquals(expected, early.kmeans(data));
+        assertEquals(movedRows.subList(0, expected), early.getMovedRows());
+
+        KmeansMiner invalid = new KmeansMiner(8);
+        assertThrows(IllegalArgumentException.class, () -> invalid.setMaxIterations(-1));
+        assertThrows(IllegalArgumentException.class, () -> invalid.setMinMovedFraction(1.5));
+        assertThrows(IllegalArgumentException.class, () -> invalid.setTolerance(-1));
+        assertThrows(IllegalArgumentException.class, () -> invalid.setParallelism(0));
+        assertThrows(IllegalArgumentException.class, () -> invalid.setRestarts(0));
+    }
+
+    /**
+     * Test per le esecuzioni indipendenti in gara: la migliore è quella con la minore distanza complessiva tra le
+     * esecuzioni separate con i semi seed + r, si ripete da sola con il proprio seme e non dipende dal grado di
+     * parallelismo.
+     */
+    @Test
+    void restartRaceTest() throws OutofRangeSampleSize {
+        Data data = SampleData.generated(5000, 6, 40, 0.05, 1);
+        int restarts = 6;
+        long seed = 21;
+        KmeansMiner[] separate = new KmeansMiner[restarts];
+        int expected = 0;
+        for (int r = 0; r < restarts; r++) {
+            separate[r] = new KmeansMiner(8);
+            separate[r].setSeed(seed + r);
+            separate[r].kmeans(data);
+            if (separate[r].getTotalDistance() < separate[expected].getTotalDistance())
+                expected = r;
+        }
+
+        for (int parallelism : new int[]{1, 2, 4}) {
+            KmeansMiner race = new KmeansMiner(8);
+            race.setSeed(seed);
+            race.setRestarts(restarts);
+            race.setParallelism(parallelism);
+            int iterations = race.kmeans(data);
+            assertEquals(expected, race.getBestRestart());
+            assertTrue(race.getStoppedRestarts() < restarts);
+            assertEquals(separate[expected].getTotalDistance(), race.getTotalDistance(), 1e-9);
+            assertEquals(separate[expected].getMovedRows().size(), iterations);
+            assertSameClusters(separate[expected].getC(), race.getC());
+        }
+    }
+
+    /**
+     * Test per {@link KmeansMiner#sweep(Data, int, int)}: su un dataset con gruppi ben separati la distanza
+     * complessiva diminuisce al crescere di k fino al numero dei gruppi, e ogni k dà la stessa distanza di
+     * {@link KmeansMiner#kmeans(Data)} con lo stesso seme.
+     */
+    @Test
+    void sweepTest() throws OutofRangeSampleSize {
+        Data data = SampleData.generated(3000, 6, 5, 0, 7);
+        KmeansMiner sweep = new KmeansMiner(6);
+        sweep.setSeed(17);
+        sweep.setSeeding(SEEDING_TYPE.KMEANS_PLUS_PLUS);
+        sweep.setParallelism(2);
+        List<SweepPoint> points = sweep.sweep(data, 1, 6);
+        assertEquals(6, points.size());
+        for (int i = 0; i < points.size(); i++) {
+            SweepPoint point = points.get(i);
+            assertEquals(i + 1, point.getK());
+            if (i > 0)
+                assertTrue(point.getTotalDistance() < points.get(i - 1).getTotalDistance());
+
+            KmeansMiner kmeansMiner = new KmeansMiner(point.getK());
+            kmeansMiner.setSeed(17);
+            kmeansMiner.setSeeding(SEEDING_TYPE.KMEANS_PLUS_PLUS);
+            assertEquals(kmeansMiner.kmeans(data), point.getNumberOfIterations());
+            assertEquals(kmeansMiner.getTotalDistance(), point.getTotalDistance(), 1e-9);
+        }
+    }
+
+    /**
+     * Calcola gli indici di qualità di un clustering dato: i centroidi sono le transazioni indicate e ogni
+     * transazione è assegnata al cluster indicato.
+     *
+     * @param data dataset.
+     * @param centroidIndexes indice della transazione usata come centroide di ogni cluster.
+     * @param assignment indice del cluster di ogni transazione.
+     *
+     * @return indici di qualità.
+     */
+    private static ClusterMetrics metrics(Data data, int[] centroidIndexes, int[] assignment) {
+        ClusterSet clusters = new ClusterSet(centroidIndexes.length);
+        clusters.initializeCentroids(data, centroidIndexes);
+        for (int d = 0; d < assignment.length; d++)
+            clusters.assign(d, assignment[d]);
+        try (ChunkExecutor executor = new ChunkExecutor(2)) {
+            return new ClusterMetrics(data, clusters, executor, false);
+        }
+    }
+
+    /**
+     * Test per {@link ClusterMetrics} su valori calcolati a mano: le tuple 0, 1, 9, 10 (normalizzate 0, 0.1, 0.9, 1)
+     * divise in due cluster con centroidi 0 e 10 hanno silhouette (1 + 0.8 / 0.9 + 0.8 / 0.9 + 1) / 4,
+     * Davies–Bouldin (0.05 + 0.05) / 1 e Calinski–Harabasz (1 / 1) / (0.02 / 2). Un cluster vuoto non cambia gli
+     * indici; con un solo cluster, o con dispersione interna nulla, gli indici non definiti valgono NaN.
+     */
+    @Test
+    void clusterMetricsTest() {
+        Data data = SampleData.continuous(0, 1, 9, 10);
+        double silhouette = (2 + 2 * 0.8 / 0.9) / 4;
+
+        ClusterMetrics two = metrics(data, new int[]{0, 3}, new int[]{0, 0, 1, 1});
+        assertEquals(silhouette, two.getSilhouette(), 1e-12);
+        assertEquals(0.1, two.getDaviesBouldin(), 1e-12);
+        assertEquals(100, two.getCalinskiHarabasz(), 1e-9);
+
+        ClusterMetrics withEmpty = metrics(data, new int[]{0, 3, 1}, new int[]{0, 0, 1, 1});
+        assertEquals(silhouette, withEmpty.getSilhouette(), 1e-12);
+        assertEquals(0.1, withEmpty.getDaviesBouldin(), 1e-12);
+        assertEquals(100, withEmpty.getCalinskiHarabasz(), 1e-9);
+
+        ClusterMetrics one = metrics(data, new int[]{0}, new int[]{0, 0, 0, 0});
+        assertTrue(Double.isNaN(one.getSilhouette()));
+        assertTrue(Double.isNaN(one.getDaviesBouldin()));
+        assertTrue(Double.isNaN(one.getCalinskiHarabasz()));
+
+        ClusterMetrics singletons = metrics(data, new int[]{0, 1, 2, 3}, new int[]{0, 1, 2, 3});
+        assertEquals(1, singletons.getSilhouette(), 1e-12);
+        assertEquals(0, singletons.getDaviesBouldin(), 1e-12);
+        assertTrue(Double.isNaN(singletons.getCalinskiHarabasz()));
+
+        Data duplicated = SampleData.continuous(0, 0, 10, 10);
+        ClusterMetrics compact = metrics(duplicated, new int[]{0, 2}, new int[]{0, 0, 1, 1});
+        assertEquals(1, compact.getSilhouette(), 1e-12);
+        assertEquals(0, compact.getDaviesBouldin(), 1e-12);
+        assertTrue(Double.isNaN(compact.getCalinskiHarabasz()));
+    }
+
+    /**
+     * Test per {@link OnlineKmeans#add(Example)}: una transazione viene assegnata al centroide più vicino, che si
+     * sposta verso di essa di una frazione pari all'inverso del peso del cluster, ridotto dell'oblio a ogni
+     * transazione ricevuta.
+     */
+    @Test
+    void onlineDecayTest() throws OutofRangeSampleSize {
+        Data data = SampleData.generated(2000, 3, 20, 0, 5);
+        KmeansMiner kmeansMiner = run(data, 3, ENGINE_TYPE.LLOYD);
+        double decay = 0.1;
+        OnlineKmeans online = new OnlineKmeans(kmeansMiner, data, decay);
+        ClusterSet clusters = kmeansMiner.getC();
+
+        Example example = new Example();
+        example.add(150.0);
+        example.add(170.0);
+        example.add("v1");
+        example.add("v1");
+        Tuple tuple = data.getItemSet(example);
+        int nearest = 0;
+        for (int c = 1; c < clusters.getNumberOfClusters(); c++)
+            if (tuple.getDistance(clusters.get(c).getCentroid()) < tuple.getDistance(clusters.get(nearest).getCentroid()))
+                nearest = c;
+        Tuple centroid = clusters.get(nearest).getCentroid();
+        double weight = clusters.get(nearest).getClusteredData().length;
+        for (int added = 0; added < 2; added++) {
+            double x = Double.parseDouble(centroid.get(0).toString());
+            double y = Double.parseDouble(centroid.get(1).toString());
+            weight = weight * (1 - decay) + 1;
+            assertEquals(nearest, online.add(example));
+            assertEquals(x + (150.0 - x) / weight, Double.parseDouble(centroid.get(0).toString()), 1e-9);
+            assertEquals(y + (170.0 - y) / weight, Double.parseDouble(centroid.get(1).toString()), 1e-9);
+        }
+        assertEquals(clusters.get(nearest).getClusteredData().length + 2, online.getClusterSize(nearest));
+    }
+
+    /**
+     * Test per la versione mini-batch di K-means: con lo stesso seme produce gli stessi cluster e la stessa distanza
+     * complessiva, con qualunque grado di parallelismo.
+     */
+    @Test
+    void miniBatchTest() throws OutofRangeSampleSize {
+        Data data = SampleData.generated(10000, 6, 40, 0.05, 6);
+        KmeansMiner[] kmeansMiners = new KmeansMiner[3];
+        int[] iterations = new int[kmeansMiners.length];
+        for (int i = 0; i < kmeansMiners.length; i++) {
+            kmeansMiners[i] = new KmeansMiner(8);
+            kmeansMiners[i].setSeed(13);
+            kmeansMiners[i].setBatchSize(256);
+            kmeansMiners[i].setParallelism(i == 2 ? 3 : 1);
+            iterations[i] = kmeansMiners[i].kmeans(data);
+        }
+        for (int i = 1; i < kmeansMiners.length; i++) {
+            assertEquals(iterations[0], iterations[i]);
+            assertEquals(kmeansMiners[0].getTotalDistance(), kmeansMiners[i].getTotalDistance());
+            assertSameClusters(kmeansMiners[0].getC(), kmeansMiners[i].getC());
+        }
+    }
+
 }
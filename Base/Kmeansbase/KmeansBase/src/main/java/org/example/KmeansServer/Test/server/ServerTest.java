@@ -1,7 +1,23 @@
 package server;
 
+import data.Data;
+import data.OutofRangeSampleSize;
+import data.SampleData;
+import mining.KmeansMiner;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -13,5 +29,92 @@ public class ServerTest {
     void serverStartUpTest() {
         assertDoesNotThrow(() -> new MultiServer(8080));
         }
-}
 
+    /**
+     * Test per {@link ServerOneClient#learning(Data, int, Map)} seguito dalla richiesta 7: una richiesta 6 rifiutata
+     * per un parametro non valido non cambia il clustering corrente, così che l'aggiornamento online segnali che non
+     * c'è un clustering da aggiornare o continui ad aggiornare quello precedente.
+     */
+    @Test
+    void failedRequestKeepsClusteringTest() throws IOException, ServerException, OutofRangeSampleSize {
+        Data data = SampleData.playtennis();
+        Map<String, Object> parallelism = new HashMap<>();
+        parallelism.put("parallelism", 0);
+        Map<String, Object> decay = new HashMap<>();
+        decay.put("decay", 1);
+        try (ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(InetAddress.getLoopbackAddress(), listener.getLocalPort())) {
+            new ObjectOutputStream(client.getOutputStream()).flush();
+            ServerOneClient server = new ServerOneClient(listener.accept());
+
+            assertThrows(ServerException.class, () -> server.learning(data, 3, parallelism));
+            assertThrows(ServerException.class, () -> server.learningOnline(List.of()));
+
+            server.learning(data, 3, new HashMap<>());
+            String updated = server.learningOnline(List.of(List.of("sunny", 20.0, "high", "weak", "no")));
+            assertThrows(ServerException.class, () -> server.learning(data, 2, parallelism));
+            assertThrows(ServerException.class, () -> server.learning(data, 2, decay));
+            String current = server.learningOnline(List.of());
+            assertTrue(current.contains("Examples added: 1\n"));
+            assertEquals(updated.substring(updated.indexOf("us\n")), current.substring(current.indexOf("us\n")));
+        }
+    }
+
+    /**
+     * Test per {@link ChunkedResultWriter}: i cluster scritti a blocchi arrivano dopo l'intestazione come stringhe di
+     * al più {@link ChunkedResultWriter#CHUNK_SIZE} caratteri che, concatenate, danno esattamente
+     * {@link mining.ClusterSet#toString(Data)}, seguite da {@code null}.
+     */
+    @Test
+    void chunkedResultTest() throws IOException, ClassNotFoundException, OutofRangeSampleSize {
+        Data data = SampleData.generated(5000, 6, 40, 0.05, 3);
+        KmeansMiner kmeansMiner = new KmeansMiner(6);
+        kmeansMiner.setSeed(5);
+        kmeansMiner.kmeans(data);
+        String expected = kmeansMiner.getC().toString(data);
+        assertTrue(expected.length() > 2 * ChunkedResultWriter.CHUNK_SIZE);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        try (ChunkedResultWriter result = new ChunkedResultWriter(out, "OK")) {
+            kmeansMiner.getC().write(result, data);
+        }
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals("OK", in.readObject());
+        StringBuilder received = new StringBuilder();
+        Object chunk;
+        while ((chunk = in.readObject()) != null) {
+            assertTrue(((String) chunk).length() <= ChunkedResultWriter.CHUNK_SIZE);
+            received.append(chunk);
+        }
+        assertEquals(expected, received.toString());
+    }
+
+    /**
+     * Test per {@link ChunkedResultWriter#fail(String)}: un errore dopo l'invio di una parte del risultato arriva
+     * dopo le stringhe già inviate come oggetto {@link Exception} con il messaggio, seguito da {@code null}; i caratteri
+     * non ancora inviati vengono scartati. Prima dell'intestazione l'errore non può essere inviato come conclusione.
+     */
+    @Test
+    void chunkedResultErrorTest() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        ChunkedResultWriter result = new ChunkedResultWriter(out, "OK");
+        result.write("x");
+        assertFalse(result.isStarted());
+        assertThrows(IllegalStateException.class, () -> result.fail("too early"));
+        result.write("x".repeat(ChunkedResultWriter.CHUNK_SIZE));
+        assertTrue(result.isStarted());
+        result.fail("boom");
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals("OK", in.readObject());
+        assertEquals("x".repeat(ChunkedResultWriter.CHUNK_SIZE), in.readObject());
+        Object error = in.readObject();
+        assertTrue(error instanceof Exception);
+        assertEquals("boom", ((Exception) error).getMessage());
+        assertNull(in.readObject());
+        assertThrows(IOException.class, in::readObject);
+    }
+}
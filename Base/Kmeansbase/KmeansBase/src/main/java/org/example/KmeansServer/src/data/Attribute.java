@@ -8,6 +8,11 @@ import java.io.Serializable;
  * @author Alessandro Ferrulli, Nazim Elmadhi.
  */
 public abstract class Attribute implements Serializable {
+    /**
+     * Versione della forma serializzata, uguale a quella dei file già salvati.
+     */
+    private static final long serialVersionUID = 2174067152919311257L;
+
     /**
      *Nome simbolico dell'attributo.
      */
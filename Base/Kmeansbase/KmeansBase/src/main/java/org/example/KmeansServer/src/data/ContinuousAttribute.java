@@ -6,6 +6,11 @@ package data;
  * @author Alessandro Ferrulli, Nazim Elmadhi.
  */
 public class ContinuousAttribute extends Attribute {
+    /**
+     * Versione della forma serializzata, uguale a quella dei file già salvati.
+     */
+    private static final long serialVersionUID = -8586546365228657877L;
+
     /**
      * Valore massimo dell'attributo.
      */
@@ -31,12 +36,26 @@ public class ContinuousAttribute extends Attribute {
 
     /**
      * Calcola e restituisce il valore normalizzato del parametro passato in input.
+     * Se l'attributo assume un solo valore, il valore normalizzato è 0.
      *
      * @param v valore da normalizzare
      *
      * @return valore normalizzato
      */
     double getScaledValue(double v){
+        if(max == min)
+            return Double.isNaN(v) ? Double.NaN : 0;
         return (v - min) / (max - min);
     }
+
+    /**
+     * Riporta un valore normalizzato nella scala originale dell'attributo.
+     *
+     * @param v valore normalizzato
+     *
+     * @return valore nella scala originale
+     */
+    double getUnscaledValue(double v){
+        return min + v * (max - min);
+    }
 }
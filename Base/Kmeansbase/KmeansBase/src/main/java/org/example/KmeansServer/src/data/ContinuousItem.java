@@ -1,11 +1,24 @@
 package data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 /**
  * Classe che modella un Item continuo (numerico).
  *
  * @author Alessandro Ferrulli, Nazim Elmadhi.
  */
 public class ContinuousItem extends Item {
+    /**
+     * Versione della forma serializzata, uguale a quella dei file già salvati.
+     */
+    private static final long serialVersionUID = -4032521836105314398L;
+
+
+    /**
+     * Valore normalizzato dell'item, NaN se il valore è nullo.
+     */
+    private double scaledValue;
 
     /**
      * Invoca il costruttore della classe madre e inizializza i membri aggiunti per estensione.
@@ -14,7 +27,28 @@ public class ContinuousItem extends Item {
      * @param value valore continuo
      */
     ContinuousItem(ContinuousAttribute attribute, Double value){
+        this(attribute, value, value == null ? Double.NaN : attribute.getScaledValue(value));
+    }
+
+    /**
+     * Invoca il costruttore della classe madre e inizializza il valore normalizzato già calcolato.
+     *
+     * @param attribute attributo continuo
+     * @param value valore continuo
+     * @param scaledValue valore continuo normalizzato
+     */
+    ContinuousItem(ContinuousAttribute attribute, Double value, double scaledValue){
         super(attribute, value);
+        this.scaledValue = scaledValue;
+    }
+
+    /**
+     * Restituisce il valore normalizzato dell'item.
+     *
+     * @return valore normalizzato, NaN se il valore è nullo
+     */
+    double getScaledValue(){
+        return scaledValue;
     }
 
     /**
@@ -25,8 +59,61 @@ public class ContinuousItem extends Item {
      */
     @Override
     double distance(Object a) {
+        if(this.getValue() == null || a == null)
+            return 0;
         double thisvalue = ((ContinuousAttribute) this.getAttribute()).getScaledValue((Double) this.getValue());
         double othervalue = ((ContinuousAttribute) this.getAttribute()).getScaledValue((Double) a);
         return (Double.isNaN(Math.abs(thisvalue - othervalue)) ? 0 : Math.abs(thisvalue - othervalue));
     }
+
+    /**
+     * Sovrascrive metodo ereditato dalla superclasse e restituisce la distanza tra i valori normalizzati
+     * dei due item; un valore nullo non contribuisce alla distanza.
+     *
+     * @param other item continuo da confrontare
+     * @return distanza tra i due item
+     */
+    @Override
+    double distance(Item other) {
+        double distance = Math.abs(scaledValue - ((ContinuousItem) other).scaledValue);
+        return Double.isNaN(distance) ? 0 : distance;
+    }
+
+    /**
+     * Aggiorna il centroide nello spazio normalizzato; il valore nella scala originale
+     * viene ricavato solo per la visualizzazione.
+     *
+     * @param data dataset
+     * @param clusterData insieme d'indici di esempi
+     */
+    @Override
+    public void update(Data data, int[] clusterData){
+        setScaledValue(data.computePrototype(clusterData, (ContinuousAttribute) getAttribute()));
+    }
+
+    /**
+     * Legge l'item; nei file salvati senza valore normalizzato questo viene ricavato dal valore e dall'attributo.
+     *
+     * @param in stream di input
+     * @throws IOException se la lettura non riesce
+     * @throws ClassNotFoundException se la classe di un oggetto letto non è disponibile
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        if(fields.defaulted("scaledValue"))
+            scaledValue = getValue() == null ? Double.NaN
+                    : ((ContinuousAttribute) getAttribute()).getScaledValue((Double) getValue());
+        else
+            scaledValue = fields.get("scaledValue", Double.NaN);
+    }
+
+    /**
+     * Imposta il valore normalizzato dell'item e ne ricava il valore nella scala originale.
+     *
+     * @param scaledValue nuovo valore normalizzato
+     */
+    void setScaledValue(double scaledValue){
+        this.scaledValue = scaledValue;
+        setValue(((ContinuousAttribute) getAttribute()).getUnscaledValue(scaledValue));
+    }
 }
\ No newline at end of file
@@ -3,27 +3,70 @@ package data;
 import database.*;
 import server.ServerException;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.sql.SQLException;
 import java.util.*;
 
 /**
  * Classe che modella l'insieme di transazioni.
+ * Le transazioni sono memorizzate per colonna: un array di double per ogni attributo continuo,
+ * un array di codici interi per ogni attributo discreto e una bitmap dei valori nulli per ogni attributo.
  *
  * @author Alessandro Ferrulli, Nazim Elmadhi.
  */
 public class Data {
 	/**
-	 * Insieme di transazioni.
+	 * Capacità iniziale delle colonne durante il caricamento.
 	 */
-	private List<Example> data;
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * Indica se il modulo della Vector API ({@code jdk.incubator.vector}) è stato caricato, con l'opzione
+	 * {@code --add-modules jdk.incubator.vector} della JVM.
+	 */
+	private static final boolean VECTOR_API_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+	/**
+	 * Valori degli attributi continui, una colonna per attributo ({@code null} per gli attributi discreti).
+	 */
+	private double[][] continuousColumns;
+	/**
+	 * Valori normalizzati degli attributi continui, calcolati una sola volta al caricamento
+	 * ({@code null} per gli attributi discreti).
+	 */
+	private double[][] scaledColumns;
+	/**
+	 * Codici dei valori degli attributi discreti, una colonna per attributo ({@code null} per gli attributi continui).
+	 * I codici sono quelli del dizionario di {@link DiscreteAttribute}, -1 per i valori nulli.
+	 */
+	private int[][] discreteColumns;
+	/**
+	 * Bitmap dei valori nulli, una per attributo.
+	 */
+	private final BitSet[] nullValues;
 	/**
 	 * Numero di transazioni.
 	 */
-	private final int numberOfExamples;
+	private int numberOfExamples;
 	/**
 	 * Insieme di attributi.
 	 */
 	private final List<Attribute> attributeSet;
+	/**
+	 * Indici degli attributi in ordine decrescente di contributo atteso alla distanza tra due transazioni,
+	 * usato dal calcolo della distanza con soglia.
+	 */
+	private int[] attributeOrder;
+
+	/**
+	 * Margine relativo oltre la soglia con cui il calcolo della distanza con soglia si interrompe: copre la differenza
+	 * di arrotondamento tra la somma nell'ordine di {@link #attributeOrder} e quella nell'ordine degli attributi.
+	 * Due distanze che differiscono meno di questo margine vanno considerate uguali.
+	 */
+	public static final double ABANDON_TOLERANCE = 1e-12;
 
 	/**
 	 * Costruttore parametrizzato.
@@ -46,9 +89,6 @@ public class Data {
 		try {
 			TableData tableData = new TableData(database);
 			TableSchema tableSchema = new TableSchema(database, table);
-			data = tableData.getDistinctTransazioni(table);
-
-			numberOfExamples = data.size();
 			attributeSet = new ArrayList<>();
 
 			for(int i = 0; i < tableSchema.getNumberOfAttributes(); i++) {
@@ -60,16 +100,153 @@ public class Data {
 					HashSet<Object> distinctValues = (HashSet<Object>) tableData.getDistinctColumnValues(table, tableSchema.getColumn(i));
 					TreeSet<String> values = new TreeSet<>();
 					for(Object o : distinctValues) {
-						values.add((String) o);
+						if(o != null)
+							values.add((String) o);
 					}
 					attributeSet.add(new DiscreteAttribute(tableSchema.getColumn(i).getColumnName(), i, values));
 				}
 			}
+
+			nullValues = new BitSet[attributeSet.size()];
+			allocateColumns(INITIAL_CAPACITY);
+			tableData.scanDistinctTransazioni(table, this::addExample);
+			trimColumns();
+			scaleColumns();
 		} catch (SQLException | EmptySetException e) {
 			throw new ServerException(e.getMessage());
 		}
 	}
 
+	/**
+	 * Costruttore che crea l'insieme di transazioni a partire da attributi ed esempi già disponibili in memoria.
+	 *
+	 * @param attributeSet insieme di attributi.
+	 * @param examples transazioni, con i valori nell'ordine degli attributi.
+	 */
+	Data(List<Attribute> attributeSet, List<Example> examples){
+		this.attributeSet = new ArrayList<>(attributeSet);
+		nullValues = new BitSet[attributeSet.size()];
+		allocateColumns(Math.max(examples.size(), 1));
+		for(Example e : examples)
+			addExample(e);
+		trimColumns();
+		scaleColumns();
+	}
+
+	/**
+	 * Alloca le colonne vuote, una per attributo.
+	 *
+	 * @param capacity numero di righe allocate inizialmente.
+	 */
+	private void allocateColumns(int capacity){
+		continuousColumns = new double[attributeSet.size()][];
+		discreteColumns = new int[attributeSet.size()][];
+		for(int j = 0; j < attributeSet.size(); j++){
+			Attribute attribute = attributeSet.get(j);
+			if(attribute instanceof ContinuousAttribute){
+				continuousColumns[j] = new double[capacity];
+			} else {
+				discreteColumns[j] = new int[capacity];
+			}
+			nullValues[j] = new BitSet();
+		}
+	}
+
+	/**
+	 * Accoda una transazione alle colonne, raddoppiandone la capacità se necessario.
+	 *
+	 * @param example transazione da aggiungere.
+	 */
+	private void addExample(Example example){
+		int row = numberOfExamples;
+		for(int j = 0; j < attributeSet.size(); j++){
+			Object value = example.get(j);
+			if(continuousColumns[j] != null){
+				if(row == continuousColumns[j].length)
+					continuousColumns[j] = Arrays.copyOf(continuousColumns[j], row * 2);
+				continuousColumns[j][row] = value == null ? Double.NaN : (Double) value;
+			} else {
+				if(row == discreteColumns[j].length)
+					discreteColumns[j] = Arrays.copyOf(discreteColumns[j], row * 2);
+				discreteColumns[j][row] = ((DiscreteAttribute) attributeSet.get(j)).encode((String) value);
+			}
+			if(value == null)
+				nullValues[j].set(row);
+		}
+		numberOfExamples++;
+	}
+
+	/**
+	 * Riduce le colonne al numero effettivo di transazioni caricate.
+	 */
+	private void trimColumns(){
+		for(int j = 0; j < attributeSet.size(); j++){
+			if(continuousColumns[j] != null)
+				continuousColumns[j] = Arrays.copyOf(continuousColumns[j], numberOfExamples);
+			else
+				discreteColumns[j] = Arrays.copyOf(discreteColumns[j], numberOfExamples);
+		}
+	}
+
+	/**
+	 * Calcola la copia normalizzata di ogni colonna continua.
+	 */
+	private void scaleColumns(){
+		scaledColumns = new double[attributeSet.size()][];
+		for(int j = 0; j < attributeSet.size(); j++){
+			if(continuousColumns[j] != null){
+				ContinuousAttribute attribute = (ContinuousAttribute) attributeSet.get(j);
+				scaledColumns[j] = new double[numberOfExamples];
+				for(int i = 0; i < numberOfExamples; i++)
+					scaledColumns[j][i] = attribute.getScaledValue(continuousColumns[j][i]);
+			}
+		}
+		orderAttributes();
+	}
+
+	/**
+	 * Ordina gli attributi per contributo atteso decrescente alla distanza tra due transazioni: per un attributo
+	 * continuo la deviazione assoluta media dei valori normalizzati, per un attributo discreto la probabilità che
+	 * due valori siano diversi, che cresce con il numero di valori distinti. Un valore nullo contribuisce 0 per gli
+	 * attributi continui e 1 per quelli discreti.
+	 */
+	private void orderAttributes(){
+		int m = attributeSet.size();
+		double[] contribution = new double[m];
+		for(int j = 0; j < m && numberOfExamples > 0; j++){
+			if(scaledColumns[j] != null){
+				double sum = 0;
+				int count = 0;
+				for(int i = 0; i < numberOfExamples; i++){
+					if(!Double.isNaN(scaledColumns[j][i])){
+						sum += scaledColumns[j][i];
+						count++;
+					}
+				}
+				double deviation = 0;
+				for(int i = 0; i < numberOfExamples; i++)
+					if(!Double.isNaN(scaledColumns[j][i]))
+						deviation += Math.abs(scaledColumns[j][i] - sum / count);
+				contribution[j] = deviation / numberOfExamples;
+			} else {
+				double[] frequencies = new double[((DiscreteAttribute) attributeSet.get(j)).getNumberOfDistinctValues()];
+				for(int i = 0; i < numberOfExamples; i++)
+					if(discreteColumns[j][i] >= 0)
+						frequencies[discreteColumns[j][i]]++;
+				double same = 0;
+				for(double f : frequencies)
+					same += (f / numberOfExamples) * (f / numberOfExamples);
+				contribution[j] = 1 - same;
+			}
+		}
+		Integer[] order = new Integer[m];
+		for(int j = 0; j < m; j++)
+			order[j] = j;
+		Arrays.sort(order, (a, b) -> Double.compare(contribution[b], contribution[a]));
+		attributeOrder = new int[m];
+		for(int j = 0; j < m; j++)
+			attributeOrder[j] = order[j];
+	}
 
 	/**
 	 * Restituisce il numero di esempi in data set.
@@ -106,14 +283,82 @@ public class Data {
 	 * @param attributeIndex nome dell'attributo
 	 *
 	 * @return valore assunto in data dall'attributo in posizione attributeIndex, nella riga in
-	 * posizione exampleIndex
+	 * posizione exampleIndex, {@code null} se il valore è nullo
 	 */
 	public Object getAttributeValue(int exampleIndex, int attributeIndex){
-		return this.data.get(exampleIndex).get(attributeIndex);
+		if(isNull(exampleIndex, attributeIndex))
+			return null;
+		if(continuousColumns[attributeIndex] != null)
+			return continuousColumns[attributeIndex][exampleIndex];
+		return ((DiscreteAttribute) attributeSet.get(attributeIndex)).decode(discreteColumns[attributeIndex][exampleIndex]);
 	}
 
 	/**
-	 * Restituisce l'attributo in posizione attributeIndex, nella riga in posizione exampleIndex.
+	 * Verifica se il valore dell'attributo in posizione attributeIndex, nella riga in posizione exampleIndex, è nullo.
+	 *
+	 * @param exampleIndex indice della riga.
+	 * @param attributeIndex indice dell'attributo.
+	 *
+	 * @return {@code true} se il valore è nullo, {@code false} altrimenti.
+	 */
+	boolean isNull(int exampleIndex, int attributeIndex){
+		return nullValues[attributeIndex].get(exampleIndex);
+	}
+
+	/**
+	 * Verifica se la transazione in posizione exampleIndex ha almeno un attributo continuo con valore nullo.
+	 * Per queste transazioni la distanza non rispetta la disuguaglianza triangolare quando la transazione
+	 * fa da punto intermedio, perché il valore nullo non contribuisce alla distanza.
+	 *
+	 * @param exampleIndex indice della riga.
+	 *
+	 * @return {@code true} se manca almeno un valore continuo, {@code false} altrimenti.
+	 */
+	public boolean hasMissingContinuousValue(int exampleIndex){
+		for(int j = 0; j < attributeSet.size(); j++)
+			if(continuousColumns[j] != null && nullValues[j].get(exampleIndex))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Restituisce il valore di un attributo continuo, NaN se il valore è nullo.
+	 *
+	 * @param exampleIndex indice della riga.
+	 * @param attributeIndex indice dell'attributo continuo.
+	 *
+	 * @return valore dell'attributo nella riga.
+	 */
+	double getContinuousValue(int exampleIndex, int attributeIndex){
+		return continuousColumns[attributeIndex][exampleIndex];
+	}
+
+	/**
+	 * Restituisce il valore normalizzato di un attributo continuo, NaN se il valore è nullo.
+	 *
+	 * @param exampleIndex indice della riga.
+	 * @param attributeIndex indice dell'attributo continuo.
+	 *
+	 * @return valore normalizzato dell'attributo nella riga.
+	 */
+	double getScaledValue(int exampleIndex, int attributeIndex){
+		return scaledColumns[attributeIndex][exampleIndex];
+	}
+
+	/**
+	 * Restituisce il codice del valore di un attributo discreto, -1 se il valore è nullo.
+	 *
+	 * @param exampleIndex indice della riga.
+	 * @param attributeIndex indice dell'attributo discreto.
+	 *
+	 * @return codice del valore dell'attributo nella riga.
+	 */
+	int getDiscreteCode(int exampleIndex, int attributeIndex){
+		return discreteColumns[attributeIndex][exampleIndex];
+	}
+
+	/**
+	 * Restituisce k indici di esempi distinti scelti a caso.
 	 *
 	 * @param k numero di clusters.
 	 *
@@ -122,86 +367,81 @@ public class Data {
 	 * @throws OutofRangeSampleSize se k è minore di 0 o maggiore del numero di esempi.
 	 */
 	public int[] sampling(int k) throws OutofRangeSampleSize {
-		if(k <= 0 || k > getNumberOfExamples())
-			throw new OutofRangeSampleSize("invalid k value");
-
-		int[] centroidIndexes = new int[k];
-		//choose k random different centroids in data.
-		Random rand = new Random();
-		rand.setSeed(System.currentTimeMillis());
-		for (int i = 0; i < k; i++){
-			boolean found = false;
-			int c;
-			do
-			{
-				found = false;
-				c = rand.nextInt(getNumberOfExamples());
-				// verify that centroid[c] is not equal to a centroide already stored in CentroidIndexes
-				for(int j = 0; j < i; j++)
-					if(compare(centroidIndexes[j], c)){
-						found = true;
-						break;
-					}
-			}
-			while(found);
-			centroidIndexes[i] = c;
-		}
-		return centroidIndexes;
-
+		return sampling(k, new Random());
 	}
 
 	/**
-	 * Confronta le righe i e j della tabella.
+	 * Restituisce k indici di esempi distinti scelti a caso con il generatore in input, così che lo stesso seme
+	 * produca sempre la stessa scelta. Gli indici sono i primi k di una permutazione casuale di Fisher-Yates
+	 * interrotta dopo k passi, i cui scambi sono registrati in una mappa: tempo e memoria crescono con k e non
+	 * con il numero di esempi. Gli esempi sono letti con SELECT DISTINCT, quindi indici distinti corrispondono
+	 * a esempi distinti e non serve confrontarli.
+	 *
+	 * @param k numero di clusters.
+	 * @param random generatore di numeri casuali.
 	 *
-	 * @param i riga.
-	 * @param j colonna.
+	 * @return array di indici di centroidi.
 	 *
-	 * @return true se le righe i e j sono uguali, false altrimenti.
+	 * @throws OutofRangeSampleSize se k è minore di 0 o maggiore del numero di esempi.
 	 */
-	private boolean compare(int i, int j){
-		for(int k = 0; k < getNumberOfAttributes(); k++)
-			if(!getAttributeValue(i,k).equals(getAttributeValue(j,k)))
-				return false;
-		return true;
-	}
+	public int[] sampling(int k, Random random) throws OutofRangeSampleSize {
+		if(k <= 0 || k > getNumberOfExamples())
+			throw new OutofRangeSampleSize("invalid k value");
 
+		int[] centroidIndexes = new int[k];
+		//posizioni della permutazione il cui contenuto è stato scambiato
+		Map<Integer, Integer> swapped = new HashMap<>();
+		for(int i = 0; i < k; i++){
+			int j = i + random.nextInt(getNumberOfExamples() - i);
+			centroidIndexes[i] = swapped.getOrDefault(j, j);
+			swapped.put(j, swapped.getOrDefault(i, i));
+		}
+		return centroidIndexes;
+	}
 
 	/**
-	 * Calcola il prototipo di un attributo discreto.
+	 * Calcola il prototipo di un attributo discreto contando, in una sola scansione, le occorrenze di ogni codice.
+	 * A parità di frequenza prevale il valore che precede nel dominio ordinato.
 	 *
 	 * @param clusteredSet insieme di righe.
 	 * @param attribute attributo discreto.
 	 *
-	 * @return prototipo.
+	 * @return codice del prototipo.
 	 */
-	String computePrototype(Set<Integer> clusteredSet, DiscreteAttribute attribute){
-		int maxValue = 0;
-		String prototype = attribute.iterator().next();
-		for(String value : attribute){
-			int frequency = attribute.frequency(this, clusteredSet, value);
-			if(frequency > maxValue){
-				maxValue = frequency;
-				prototype = value;
-			}
-
+	int computePrototype(int[] clusteredSet, DiscreteAttribute attribute){
+		int[] column = discreteColumns[attribute.getIndex()];
+		int[] frequencies = new int[attribute.getNumberOfDistinctValues()];
+		for(int index : clusteredSet){
+			if(column[index] >= 0)
+				frequencies[column[index]]++;
+		}
+		int prototype = 0;
+		for(int code = 1; code < frequencies.length; code++){
+			if(frequencies[code] > frequencies[prototype])
+				prototype = code;
 		}
 		return prototype;
 	}
 
 	/**
-	 * Calcola il prototipo di un attributo continuo.
+	 * Calcola il prototipo di un attributo continuo come media dei valori normalizzati non nulli.
 	 *
 	 * @param clusteredSet insieme di righe.
 	 * @param attribute attributo continuo.
 	 *
-	 * @return prototipo.
+	 * @return prototipo normalizzato.
 	 */
-	double computePrototype(Set<Integer> clusteredSet, ContinuousAttribute attribute){
+	double computePrototype(int[] clusteredSet, ContinuousAttribute attribute){
+		double[] column = scaledColumns[attribute.getIndex()];
 		double sum = 0;
+		int count = 0;
 		for(int index : clusteredSet){
-			sum += (double) data.get(index).get(attribute.getIndex());
+			if(!Double.isNaN(column[index])){
+				sum += column[index];
+				count++;
+			}
 		}
-		return sum / (double) clusteredSet.size();
+		return sum / (double) count;
 	}
 
 	/**
@@ -212,9 +452,9 @@ public class Data {
 	 *
 	 * @return prototipo.
 	 */
-	Object computePrototype(Set<Integer> clusteredSet, Attribute attribute){
+	Object computePrototype(int[] clusteredSet, Attribute attribute){
 		if(attribute instanceof DiscreteAttribute)
-			return computePrototype(clusteredSet, (DiscreteAttribute) attribute);
+			return ((DiscreteAttribute) attribute).decode(computePrototype(clusteredSet, (DiscreteAttribute) attribute));
 		else
 			return computePrototype(clusteredSet, (ContinuousAttribute) attribute);
 	}
@@ -231,15 +471,198 @@ public class Data {
 		Tuple tuple = new Tuple(attributeSet.size());
 		for(int i = 0; i < attributeSet.size(); i++){
 			if(attributeSet.get(i) instanceof DiscreteAttribute){
-				tuple.add(new DiscreteItem((DiscreteAttribute) attributeSet.get(i), getAttributeValue(index, i)), i);
+				tuple.add(new DiscreteItem((DiscreteAttribute) attributeSet.get(i), discreteColumns[i][index]), i);
 			}
 			else if(attributeSet.get(i) instanceof ContinuousAttribute){
-				tuple.add(new ContinuousItem((ContinuousAttribute) attributeSet.get(i), (Double) getAttributeValue(index, i)), i);
+				tuple.add(new ContinuousItem((ContinuousAttribute) attributeSet.get(i), (Double) getAttributeValue(index, i),
+						scaledColumns[i][index]), i);
 			}
 		}
 		return tuple;
 	}
 
+	/**
+	 * Restituisce la tupla di una transazione che non appartiene al dataset, con lo schema e la normalizzazione
+	 * del dataset. Un valore discreto fuori dal dominio dell'attributo viene trattato come nullo.
+	 *
+	 * @param example transazione con un valore per ogni attributo del dataset.
+	 *
+	 * @return tupla della transazione.
+	 *
+	 * @throws IllegalArgumentException se il valore di un attributo continuo non è numerico.
+	 */
+	public Tuple getItemSet(Example example){
+		Tuple tuple = new Tuple(attributeSet.size());
+		for(int i = 0; i < attributeSet.size(); i++){
+			Object value = example.get(i);
+			if(attributeSet.get(i) instanceof DiscreteAttribute){
+				tuple.add(new DiscreteItem((DiscreteAttribute) attributeSet.get(i), value == null ? null : value.toString()), i);
+			}
+			else if(attributeSet.get(i) instanceof ContinuousAttribute){
+				if(value != null && !(value instanceof Number))
+					throw new IllegalArgumentException("Invalid value for attribute " + attributeSet.get(i).getName() + ": " + value);
+				tuple.add(new ContinuousItem((ContinuousAttribute) attributeSet.get(i),
+						value == null ? null : ((Number) value).doubleValue()), i);
+			}
+		}
+		return tuple;
+	}
+
+	/**
+	 * Restituisce una copia di una tupla creata su un altro dataset con lo stesso schema (ad esempio un centroide
+	 * caricato da file), ricodificata con la normalizzazione e i dizionari di questo dataset.
+	 *
+	 * @param tuple tupla con un item per ogni attributo del dataset.
+	 *
+	 * @return tupla ricodificata.
+	 *
+	 * @throws IllegalArgumentException se la tupla non ha un item per ogni attributo del dataset.
+	 */
+	public Tuple getItemSet(Tuple tuple){
+		if(tuple.getLength() != attributeSet.size())
+			throw new IllegalArgumentException("Tuple does not match the schema of the table");
+		Example example = new Example();
+		for(int i = 0; i < tuple.getLength(); i++)
+			example.add(tuple.get(i).getValue());
+		return getItemSet(example);
+	}
+
+	/**
+	 * Verifica se una tupla è codificata con la normalizzazione e i dizionari di questo dataset, cioè se ogni suo
+	 * item si riferisce al corrispondente attributo del dataset.
+	 *
+	 * @param tuple tupla da verificare.
+	 *
+	 * @return {@code true} se la tupla può essere confrontata con le transazioni del dataset senza ricodificarla.
+	 */
+	public boolean isEncoded(Tuple tuple){
+		if(tuple.getLength() != attributeSet.size())
+			return false;
+		for(int i = 0; i < tuple.getLength(); i++)
+			if(tuple.get(i).getAttribute() != attributeSet.get(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Calcola la distanza tra la transazione in posizione exampleIndex e una tupla, leggendo direttamente
+	 * dalle colonne senza costruire la tupla della transazione. La tupla deve essere codificata con questo dataset
+	 * (vedi {@link #isEncoded(Tuple)}).
+	 *
+	 * @param exampleIndex indice della transazione.
+	 * @param tuple tupla con cui calcolare la distanza (tipicamente un centroide).
+	 *
+	 * @return distanza tra la transazione e la tupla.
+	 */
+	public double distance(int exampleIndex, Tuple tuple){
+		double distance = 0;
+		for(int j = 0; j < attributeSet.size(); j++){
+			if(scaledColumns[j] != null){
+				double d = Math.abs(scaledColumns[j][exampleIndex] - ((ContinuousItem) tuple.get(j)).getScaledValue());
+				if(!Double.isNaN(d))
+					distance += d;
+			} else {
+				int code = discreteColumns[j][exampleIndex];
+				if(code < 0 || code != ((DiscreteItem) tuple.get(j)).getCode())
+					distance += 1;
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 * Calcola la distanza tra la transazione in posizione exampleIndex e una tupla solo se non supera una soglia,
+	 * tipicamente la distanza dal centroide più vicino trovato finora. Gli attributi sono esaminati in ordine
+	 * decrescente di contributo atteso e il calcolo s'interrompe appena la somma parziale supera la soglia, così che
+	 * la maggior parte delle tuple lontane sia scartata dopo pochi attributi.
+	 *
+	 * @param exampleIndex indice della transazione.
+	 * @param tuple tupla con cui calcolare la distanza.
+	 * @param cutoff soglia, non negativa.
+	 *
+	 * @return la distanza tra la transazione e la tupla, uguale a quella di {@link #distance(int, Tuple)} a meno
+	 * dell'arrotondamento della somma in un ordine diverso (entro {@link #ABANDON_TOLERANCE} in termini relativi),
+	 * oppure un valore maggiore di cutoff se la distanza supera la soglia.
+	 */
+	public double distance(int exampleIndex, Tuple tuple, double cutoff){
+		double limit = cutoff + cutoff * ABANDON_TOLERANCE;
+		double partial = 0;
+		for(int j : attributeOrder){
+			if(scaledColumns[j] != null){
+				double d = Math.abs(scaledColumns[j][exampleIndex] - ((ContinuousItem) tuple.get(j)).getScaledValue());
+				if(!Double.isNaN(d))
+					partial += d;
+			} else {
+				int code = discreteColumns[j][exampleIndex];
+				if(code < 0 || code != ((DiscreteItem) tuple.get(j)).getCode())
+					partial += 1;
+			}
+			if(partial > limit)
+				return partial;
+		}
+		return partial;
+	}
+
+	/**
+	 * Calcola la distanza da ogni tupla di un gruppo di tutte le transazioni con indice compreso tra from (incluso)
+	 * e to (escluso), un attributo alla volta: ogni valore di una colonna viene letto una sola volta per tutte le
+	 * tuple del gruppo. Con la Vector API ogni attributo è elaborato su più transazioni per istruzione; in ogni caso
+	 * le distanze coincidono con quelle di {@link #distance(int, Tuple)}.
+	 *
+	 * @param from indice della prima transazione.
+	 * @param to indice successivo all'ultima transazione.
+	 * @param tuples tuple con cui calcolare le distanze (tipicamente un gruppo di centroidi).
+	 * @param distances array in cui scrivere le distanze da ogni tupla, a partire dall'indice 0 per la transazione from.
+	 * @param vectorized {@code true} per usare la Vector API, se disponibile.
+	 */
+	public void distances(int from, int to, Tuple[] tuples, double[][] distances, boolean vectorized){
+		for(double[] d : distances)
+			Arrays.fill(d, 0, to - from, 0);
+		boolean vector = vectorized && VECTOR_API_AVAILABLE;
+		for(int j = 0; j < attributeSet.size(); j++){
+			if(scaledColumns[j] != null){
+				double[] values = new double[tuples.length];
+				for(int t = 0; t < tuples.length; t++)
+					values[t] = ((ContinuousItem) tuples[t].get(j)).getScaledValue();
+				if(vector){
+					VectorKernels.addAbsoluteDifferences(scaledColumns[j], from, to, values, distances);
+				} else {
+					for(int x = from; x < to; x++){
+						for(int t = 0; t < tuples.length; t++){
+							double d = Math.abs(scaledColumns[j][x] - values[t]);
+							if(!Double.isNaN(d))
+								distances[t][x - from] += d;
+						}
+					}
+				}
+			} else {
+				int[] codes = new int[tuples.length];
+				for(int t = 0; t < tuples.length; t++)
+					codes[t] = ((DiscreteItem) tuples[t].get(j)).getCode();
+				if(vector){
+					VectorKernels.addMismatches(discreteColumns[j], from, to, codes, distances);
+				} else {
+					for(int x = from; x < to; x++){
+						int code = discreteColumns[j][x];
+						for(int t = 0; t < tuples.length; t++)
+							if(code < 0 || code != codes[t])
+								distances[t][x - from] += 1;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Indica se la Vector API è disponibile, cioè se la JVM è stata avviata con l'opzione
+	 * {@code --add-modules jdk.incubator.vector}.
+	 *
+	 * @return {@code true} se la Vector API è disponibile.
+	 */
+	public static boolean isVectorApiAvailable(){
+		return VECTOR_API_AVAILABLE;
+	}
+
 	/**
 	 * Crea una stringa in cui memorizza lo schema della tabella e le transazioni memorizzate in data
 	 * opportunamente enumerate.
@@ -248,15 +671,30 @@ public class Data {
 	 */
 	@Override
 	public String toString(){
-		String dataStr = "";
-		int i = 0;
-		for(Example e: data){
-			dataStr += i+1 + ": " + e.toString();
-			dataStr = dataStr.substring(0, dataStr.length() - 1);
-			dataStr += "\n";
-			i++;
+		StringWriter dataStr = new StringWriter();
+		try {
+			write(dataStr);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return dataStr.toString();
+	}
+
+	/**
+	 * Scrive le transazioni memorizzate in data, opportunamente enumerate, una riga alla volta: il costo è
+	 * proporzionale alla lunghezza del testo e la memoria non dipende dal numero di transazioni.
+	 *
+	 * @param out destinazione del testo.
+	 *
+	 * @throws IOException se la scrittura non riesce.
+	 */
+	public void write(Writer out) throws IOException {
+		for(int i = 0; i < numberOfExamples; i++){
+			out.write(i + 1 + ":");
+			for(int j = 0; j < attributeSet.size(); j++)
+				out.write(" " + getAttributeValue(i, j));
+			out.write("\n");
 		}
-		return dataStr;
 	}
 
 }
@@ -1,22 +1,49 @@
 package data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.Map;
 import java.util.TreeSet;
 
 /**
  * Classe che rappresenta un attributo discreto (categorico).
+ * Il dominio è memorizzato come dizionario: ogni valore distinto è codificato dalla sua posizione
+ * nel dominio ordinato, così che gli esempi possano essere confrontati per codice intero.
  *
  * @author Alessandro Ferrulli, Nazim Elmadhi.
  */
 public class DiscreteAttribute extends Attribute implements Iterable<String> {
     /**
-     * Insieme di valori distinti che può assumere l'attributo.
+     * Versione della forma serializzata, uguale a quella dei file già salvati.
      */
-    private final TreeSet<String> values;
+    private static final long serialVersionUID = 3876874050571886466L;
 
     /**
-     * Invoca il costruttore della classe madre e inizializza il membro values con il parametro in input.
+     * Forma serializzata dell'attributo: il dominio ordinato, come nei file già salvati; il dizionario
+     * viene ricostruito in lettura.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("values", TreeSet.class)
+    };
+
+    /**
+     * Valori distinti che può assumere l'attributo, in ordine crescente; il codice di un valore è la sua posizione.
+     */
+    private String[] values;
+
+    /**
+     * Associa a ogni valore distinto il suo codice.
+     */
+    private Map<String, Integer> codes;
+
+    /**
+     * Invoca il costruttore della classe madre e inizializza il dizionario a partire dal dominio in input.
      *
      * @param name nome dell'attributo
      * @param index identificativo numerico dell'attributo
@@ -24,7 +51,45 @@ public class DiscreteAttribute extends Attribute implements Iterable<String> {
      */
     DiscreteAttribute(String name, int  index, TreeSet<String> values){
         super(name, index);
-        this.values = values;
+        setValues(values);
+    }
+
+    /**
+     * Inizializza il dizionario a partire dal dominio in input.
+     *
+     * @param values dominio dell'attributo
+     */
+    private void setValues(TreeSet<String> values){
+        this.values = values.toArray(new String[0]);
+        this.codes = new HashMap<>();
+        for(int i = 0; i < this.values.length; i++)
+            codes.put(this.values[i], i);
+    }
+
+    /**
+     * Scrive l'attributo con il dominio come insieme ordinato.
+     *
+     * @param out stream di output
+     * @throws IOException se la scrittura non riesce
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("values", new TreeSet<>(Arrays.asList(values)));
+        out.writeFields();
+    }
+
+    /**
+     * Legge l'attributo e ricostruisce il dizionario dal dominio, ordinandolo se è stato salvato come insieme
+     * non ordinato.
+     *
+     * @param in stream di input
+     * @throws IOException se la lettura non riesce
+     * @throws ClassNotFoundException se la classe di un oggetto letto non è disponibile
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        setValues(new TreeSet<>((Collection<String>) fields.get("values", null)));
     }
 
     /**
@@ -33,9 +98,29 @@ public class DiscreteAttribute extends Attribute implements Iterable<String> {
      * @return numero di valori distinti
      */
     int getNumberOfDistinctValues(){
-        return values.size();
+        return values.length;
     }
 
+    /**
+     * Restituisce il codice di un valore dell'attributo.
+     *
+     * @param v valore da codificare
+     * @return codice del valore, -1 se il valore è nullo o non appartiene al dominio
+     */
+    int encode(String v){
+        Integer code = v == null ? null : codes.get(v);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Restituisce il valore corrispondente a un codice.
+     *
+     * @param code codice del valore
+     * @return valore dell'attributo, {@code null} se il codice è negativo
+     */
+    String decode(int code){
+        return code < 0 ? null : values[code];
+    }
 
     /**
      * Determina il numero di volte che il valore v compare
@@ -47,10 +132,13 @@ public class DiscreteAttribute extends Attribute implements Iterable<String> {
      * @param v valore di cui si vuole conoscere la frequenza
      * @return count numero di occorrenze di v nell'attributo
      */
-    int frequency(Data data, Set<Integer> clusteredData, String v){
+    int frequency(Data data, int[] clusteredData, String v){
+        int code = encode(v);
+        if(code < 0)
+            return 0;
         int count = 0;
-        for(Integer i : clusteredData)
-            if(data.getAttributeValue(i, this.getIndex()).equals(v))
+        for(int i : clusteredData)
+            if(data.getDiscreteCode(i, this.getIndex()) == code)
                 count++;
         return count;
     }
@@ -62,7 +150,7 @@ public class DiscreteAttribute extends Attribute implements Iterable<String> {
      */
     @Override
     public Iterator<String> iterator() {
-        return values.iterator();
+        return Arrays.asList(values).iterator();
     }
 
-}
+}
\ No newline at end of file
@@ -1,11 +1,24 @@
 package data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 /**
  * Classe che modella un Item discreto (categorico).
  *
  * @author Alessandro Ferrulli, Nazim Elmadhi.
  */
 class DiscreteItem extends Item {
+    /**
+     * Versione della forma serializzata, uguale a quella dei file già salvati.
+     */
+    private static final long serialVersionUID = 2387021671050857259L;
+
+
+    /**
+     * Codice del valore nel dizionario dell'attributo, -1 se il valore è nullo.
+     */
+    private int code;
 
     /**
      * Invoca il costruttore della classe madre e inizializza i membri aggiunti per estensione.
@@ -15,6 +28,27 @@ class DiscreteItem extends Item {
      */
     DiscreteItem(DiscreteAttribute attribute, Object value) {
         super(attribute, value);
+        this.code = attribute.encode((String) value);
+    }
+
+    /**
+     * Invoca il costruttore della classe madre ricavando il valore dal codice in input.
+     *
+     * @param attribute attributo discreto
+     * @param code codice del valore discreto
+     */
+    DiscreteItem(DiscreteAttribute attribute, int code) {
+        super(attribute, attribute.decode(code));
+        this.code = code;
+    }
+
+    /**
+     * Restituisce il codice del valore dell'item.
+     *
+     * @return codice del valore, -1 se il valore è nullo
+     */
+    int getCode(){
+        return code;
     }
 
     /**
@@ -25,7 +59,55 @@ class DiscreteItem extends Item {
      */
     @Override
     double distance(Object a) {
-        return  getValue().equals(a) ? 0 : 1;
+        return  (getValue() == null || !getValue().equals(a)) ? 1 : 0;
+    }
+
+    /**
+     * Sovrascrive metodo ereditato dalla superclasse e restituisce la distanza tra due item discreti,
+     * confrontandone i codici.
+     *
+     * @param other item discreto da confrontare
+     * @return distanza tra i due item
+     */
+    @Override
+    double distance(Item other) {
+        return (code < 0 || code != ((DiscreteItem) other).code) ? 1 : 0;
+    }
+
+    /**
+     * Aggiorna il valore dell'item con il valore più frequente tra gli esempi in input.
+     *
+     * @param data dataset
+     * @param clusterData insieme d'indici di esempi
+     */
+    @Override
+    public void update(Data data, int[] clusterData){
+        setCode(data.computePrototype(clusterData, (DiscreteAttribute) getAttribute()));
+    }
+
+    /**
+     * Legge l'item; nei file salvati senza codice questo viene ricavato dal valore e dall'attributo.
+     *
+     * @param in stream di input
+     * @throws IOException se la lettura non riesce
+     * @throws ClassNotFoundException se la classe di un oggetto letto non è disponibile
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        if(fields.defaulted("code"))
+            code = ((DiscreteAttribute) getAttribute()).encode((String) getValue());
+        else
+            code = fields.get("code", -1);
+    }
+
+    /**
+     * Imposta il codice dell'item e il valore corrispondente.
+     *
+     * @param code nuovo codice
+     */
+    void setCode(int code){
+        this.code = code;
+        setValue(((DiscreteAttribute) getAttribute()).decode(code));
     }
 
-}
+}
\ No newline at end of file
@@ -1,7 +1,6 @@
 package data;
 
 import java.io.Serializable;
-import java.util.Set;
 
 /**
  * Classe astratta che rappresenta la entità item.
@@ -9,6 +8,11 @@ import java.util.Set;
  * @author Alessandro Ferrulli, Nazim Elmadhi.
  */
 public abstract class Item implements Serializable {
+    /**
+     * Versione della forma serializzata, uguale a quella dei file già salvati.
+     */
+    private static final long serialVersionUID = -2511310263517759680L;
+
     /**
      * Attributo dell'item.
      */
@@ -48,13 +52,22 @@ public abstract class Item implements Serializable {
         return this.value;
     }
 
+    /**
+     * Imposta il valore dell'item.
+     *
+     * @param value nuovo valore dell'item
+     */
+    void setValue(Object value){
+        this.value = value;
+    }
+
     /**
      * Sovrascrive metodo ereditato dalla superclasse Object e restuisce la stringa rappresentante lo stato dell'oggetto.
      *
      * @return stato dell'attributo
      */
     public String toString(){
-        return this.value.toString();
+        return String.valueOf(this.value);
     }
 
     /**
@@ -65,13 +78,22 @@ public abstract class Item implements Serializable {
      */
     abstract double distance(Object a);
 
+    /**
+     * Calcola e restituisce la distanza tra due item dello stesso attributo, confrontandone la codifica: entrambi
+     * gli item devono essere codificati con lo stesso dataset (vedi {@link Data#getItemSet(Tuple)}).
+     *
+     * @param other item da confrontare
+     * @return distanza tra i due item
+     */
+    abstract double distance(Item other);
+
     /**
      * Aggiorna il valore dell'item.
      *
      * @param data dataset
      * @param clusterData insieme d'indici di esempi
      */
-    public void update(Data data, Set<Integer> clusterData){
+    public void update(Data data, int[] clusterData){
         value = data.computePrototype(clusterData, attribute);
     }
 
@@ -0,0 +1,157 @@
+package data;
+
+/**
+ * Classe che aggiorna un centroide una transazione alla volta, come media progressiva delle transazioni ricevute:
+ * ogni attributo continuo si sposta verso il valore della transazione con tasso di apprendimento pari all'inverso
+ * del numero di valori ricevuti, ogni attributo discreto assume il valore ricevuto più spesso (a parità di
+ * frequenza, il valore che precede nel dominio). I valori nulli della transazione non spostano il centroide.
+ * Con un fattore di oblio maggiore di zero, a ogni transazione ricevuta i contributi precedenti perdono una frazione
+ * del loro peso, così che il centroide segua i dati più recenti.
+ * Il costo di un aggiornamento non dipende dal numero di transazioni già ricevute.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+public class RunningCentroid {
+    /**
+     * Centroide aggiornato.
+     */
+    private final Tuple centroid;
+
+    /**
+     * Numero di valori non nulli ricevuti per ogni attributo continuo.
+     */
+    private final double[] weights;
+
+    /**
+     * Frequenza di ogni codice ricevuto per ogni attributo discreto ({@code null} per gli attributi continui).
+     */
+    private final double[][] frequencies;
+
+    /**
+     * Frazione del peso dei contributi precedenti persa a ogni transazione ricevuta.
+     */
+    private final double decay;
+
+    /**
+     * Numero di transazioni ricevute.
+     */
+    private long size;
+
+    /**
+     * Crea l'aggiornamento di un centroide che non ha ancora ricevuto transazioni: la prima transazione
+     * ne sostituisce i valori.
+     *
+     * @param data dataset.
+     * @param centroid centroide da aggiornare.
+     */
+    public RunningCentroid(Data data, Tuple centroid){
+        this(data, centroid, 0, 0);
+    }
+
+    /**
+     * Crea l'aggiornamento di un centroide che riassume già initialSize transazioni, come se ciascuna avesse
+     * i valori del centroide.
+     *
+     * @param data dataset.
+     * @param centroid centroide da aggiornare.
+     * @param initialSize numero di transazioni già riassunte dal centroide.
+     * @param decay frazione del peso dei contributi precedenti persa a ogni transazione ricevuta, tra 0 (incluso) e 1 (escluso).
+     *
+     * @throws IllegalArgumentException se decay non è compreso tra 0 (incluso) e 1 (escluso).
+     */
+    public RunningCentroid(Data data, Tuple centroid, long initialSize, double decay){
+        if(!(decay >= 0 && decay < 1))
+            throw new IllegalArgumentException("decay must be in [0, 1): " + decay);
+        this.centroid = centroid;
+        this.decay = decay;
+        int m = data.getNumberOfAttributes();
+        weights = new double[m];
+        frequencies = new double[m][];
+        for(int j = 0; j < m; j++){
+            if(data.getAttribute(j) instanceof DiscreteAttribute){
+                frequencies[j] = new double[((DiscreteAttribute) data.getAttribute(j)).getNumberOfDistinctValues()];
+                int code = ((DiscreteItem) centroid.get(j)).getCode();
+                if(code >= 0 && code < frequencies[j].length)
+                    frequencies[j][code] = initialSize;
+            } else if(!Double.isNaN(((ContinuousItem) centroid.get(j)).getScaledValue())){
+                weights[j] = initialSize;
+            }
+        }
+    }
+
+    /**
+     * Restituisce il numero di transazioni ricevute.
+     *
+     * @return numero di transazioni.
+     */
+    public long getSize(){
+        return size;
+    }
+
+    /**
+     * Sposta il centroide verso una transazione del dataset.
+     *
+     * @param data dataset.
+     * @param id indice della transazione.
+     */
+    public void add(Data data, int id){
+        for(int j = 0; j < weights.length; j++){
+            if(frequencies[j] == null)
+                addScaledValue(j, data.getScaledValue(id, j));
+            else
+                addCode(j, data.getDiscreteCode(id, j));
+        }
+        size++;
+    }
+
+    /**
+     * Sposta il centroide verso una tupla con lo stesso schema del dataset.
+     *
+     * @param tuple tupla ricevuta.
+     */
+    public void add(Tuple tuple){
+        for(int j = 0; j < weights.length; j++){
+            if(frequencies[j] == null)
+                addScaledValue(j, ((ContinuousItem) tuple.get(j)).getScaledValue());
+            else
+                addCode(j, ((DiscreteItem) tuple.get(j)).getCode());
+        }
+        size++;
+    }
+
+    /**
+     * Sposta un attributo continuo del centroide verso un valore normalizzato.
+     *
+     * @param j indice dell'attributo.
+     * @param value valore normalizzato, NaN se nullo.
+     */
+    private void addScaledValue(int j, double value){
+        if(Double.isNaN(value))
+            return;
+        ContinuousItem item = (ContinuousItem) centroid.get(j);
+        weights[j] = weights[j] * (1 - decay) + 1;
+        double current = item.getScaledValue();
+        item.setScaledValue(Double.isNaN(current) ? value : current + (value - current) / weights[j]);
+    }
+
+    /**
+     * Conta un codice ricevuto per un attributo discreto e ne aggiorna il prototipo.
+     *
+     * @param j indice dell'attributo.
+     * @param code codice ricevuto, negativo se nullo o fuori dal dominio.
+     */
+    private void addCode(int j, int code){
+        if(code < 0)
+            return;
+        DiscreteItem item = (DiscreteItem) centroid.get(j);
+        if(decay > 0)
+            for(int v = 0; v < frequencies[j].length; v++)
+                frequencies[j][v] *= 1 - decay;
+        frequencies[j][code]++;
+        //l'oblio riduce tutte le frequenze nella stessa proporzione: il prototipo resta o diventa il codice ricevuto
+        int prototype = item.getCode();
+        if(prototype < 0 || frequencies[j][code] > frequencies[j][prototype]
+                || (frequencies[j][code] == frequencies[j][prototype] && code < prototype))
+            item.setCode(code);
+    }
+}
@@ -0,0 +1,142 @@
+package data;
+
+/**
+ * Classe che raccoglie le statistiche sufficienti per calcolare il centroide di un insieme di transazioni:
+ * la somma dei valori normalizzati e il numero di valori non nulli di ogni attributo continuo,
+ * il numero di occorrenze di ogni valore di ogni attributo discreto.
+ * Statistiche calcolate su insiemi disgiunti di transazioni possono essere fuse, e le transazioni possono essere
+ * aggiunte e rimosse una alla volta, così che il centroide segua gli spostamenti senza ricalcolarlo da capo.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+public class SufficientStatistics {
+    /**
+     * Somma dei valori normalizzati non nulli di ogni attributo continuo.
+     */
+    private final double[] sums;
+
+    /**
+     * Numero di valori non nulli di ogni attributo continuo.
+     */
+    private final int[] counts;
+
+    /**
+     * Occorrenze di ogni codice di ogni attributo discreto ({@code null} per gli attributi continui).
+     */
+    private final int[][] frequencies;
+
+    /**
+     * Numero di transazioni raccolte.
+     */
+    private int size;
+
+    /**
+     * Crea statistiche vuote per le transazioni del dataset in input.
+     *
+     * @param data dataset.
+     */
+    public SufficientStatistics(Data data){
+        int m = data.getNumberOfAttributes();
+        sums = new double[m];
+        counts = new int[m];
+        frequencies = new int[m][];
+        for(int j = 0; j < m; j++){
+            if(data.getAttribute(j) instanceof DiscreteAttribute)
+                frequencies[j] = new int[((DiscreteAttribute) data.getAttribute(j)).getNumberOfDistinctValues()];
+        }
+    }
+
+    /**
+     * Restituisce il numero di transazioni raccolte.
+     *
+     * @return numero di transazioni.
+     */
+    public int getSize(){
+        return size;
+    }
+
+    /**
+     * Aggiunge una transazione alle statistiche.
+     *
+     * @param data dataset.
+     * @param id indice della transazione.
+     */
+    public void add(Data data, int id){
+        for(int j = 0; j < sums.length; j++){
+            if(frequencies[j] == null){
+                double value = data.getScaledValue(id, j);
+                if(!Double.isNaN(value)){
+                    sums[j] += value;
+                    counts[j]++;
+                }
+            } else {
+                int code = data.getDiscreteCode(id, j);
+                if(code >= 0)
+                    frequencies[j][code]++;
+            }
+        }
+        size++;
+    }
+
+    /**
+     * Rimuove dalle statistiche una transazione aggiunta in precedenza.
+     *
+     * @param data dataset.
+     * @param id indice della transazione.
+     */
+    public void remove(Data data, int id){
+        for(int j = 0; j < sums.length; j++){
+            if(frequencies[j] == null){
+                double value = data.getScaledValue(id, j);
+                if(!Double.isNaN(value)){
+                    counts[j]--;
+                    //senza valori la somma torna esattamente a zero, scartando l'errore di arrotondamento accumulato
+                    sums[j] = counts[j] == 0 ? 0 : sums[j] - value;
+                }
+            } else {
+                int code = data.getDiscreteCode(id, j);
+                if(code >= 0)
+                    frequencies[j][code]--;
+            }
+        }
+        size--;
+    }
+
+    /**
+     * Aggiunge alle statistiche quelle calcolate su un insieme disgiunto di transazioni.
+     *
+     * @param other statistiche da aggiungere.
+     */
+    public void merge(SufficientStatistics other){
+        for(int j = 0; j < sums.length; j++){
+            if(frequencies[j] == null){
+                sums[j] += other.sums[j];
+                counts[j] += other.counts[j];
+            } else {
+                for(int code = 0; code < frequencies[j].length; code++)
+                    frequencies[j][code] += other.frequencies[j][code];
+            }
+        }
+        size += other.size;
+    }
+
+    /**
+     * Aggiorna il centroide con la media dei valori normalizzati di ogni attributo continuo e con il valore
+     * più frequente di ogni attributo discreto; a parità di frequenza prevale il valore che precede nel dominio.
+     *
+     * @param centroid centroide da aggiornare.
+     */
+    public void updateCentroid(Tuple centroid){
+        for(int j = 0; j < sums.length; j++){
+            if(frequencies[j] == null){
+                ((ContinuousItem) centroid.get(j)).setScaledValue(sums[j] / counts[j]);
+            } else {
+                int prototype = 0;
+                for(int code = 1; code < frequencies[j].length; code++)
+                    if(frequencies[j][code] > frequencies[j][prototype])
+                        prototype = code;
+                ((DiscreteItem) centroid.get(j)).setCode(prototype);
+            }
+        }
+    }
+}
\ No newline at end of file
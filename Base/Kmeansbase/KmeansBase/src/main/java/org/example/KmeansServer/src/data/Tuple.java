@@ -1,7 +1,6 @@
 package data;
 
 import java.io.Serializable;
-import java.util.Set;
 
 /**
  * Classe per rappresentare una tupla di valori.
@@ -9,6 +8,11 @@ import java.util.Set;
  * @author Alessandro Ferrulli, Nazim Elmadhi.
  */
 public class Tuple implements Serializable {
+    /**
+     * Versione della forma serializzata, uguale a quella dei file già salvati.
+     */
+    private static final long serialVersionUID = 9053670819200331704L;
+
 
     /**
      * Array d'Item che rappresenta la tupla.
@@ -54,7 +58,8 @@ public class Tuple implements Serializable {
     }
 
     /**
-     * Restituisce la distanza tra la tupla e un'altra tupla.
+     * Restituisce la distanza tra la tupla e un'altra tupla. Le due tuple devono essere codificate con lo stesso
+     * dataset, perché gli item vengono confrontati per codice e valore normalizzato.
      *
      * @param obj Tupla con cui calcolare la distanza.
      *
@@ -63,11 +68,43 @@ public class Tuple implements Serializable {
     public double getDistance(Tuple obj){
         double distance = 0;
         for(int i = 0; i < tuple.length; i++){
-            distance += tuple[i].distance(obj.get(i).getValue());
+            distance += tuple[i].distance(obj.get(i));
         }
         return distance;
     }
 
+    /**
+     * Restituisce una copia della tupla, con Item distinti da quelli originali.
+     *
+     * @return Copia della tupla.
+     */
+    public Tuple copy(){
+        Tuple copy = new Tuple(tuple.length);
+        for(int i = 0; i < tuple.length; i++){
+            if(tuple[i] instanceof ContinuousItem){
+                ContinuousItem item = (ContinuousItem) tuple[i];
+                copy.add(new ContinuousItem((ContinuousAttribute) item.getAttribute(), (Double) item.getValue(),
+                        item.getScaledValue()), i);
+            } else {
+                DiscreteItem item = (DiscreteItem) tuple[i];
+                copy.add(new DiscreteItem((DiscreteAttribute) item.getAttribute(), item.getCode()), i);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Verifica se la tupla ha almeno un Item continuo senza valore, come il centroide di un cluster vuoto.
+     *
+     * @return {@code true} se manca almeno un valore continuo, {@code false} altrimenti.
+     */
+    public boolean hasMissingContinuousValue(){
+        for(Item item : tuple)
+            if(item instanceof ContinuousItem && Double.isNaN(((ContinuousItem) item).getScaledValue()))
+                return true;
+        return false;
+    }
+
     /**
      * Restituisce la distanza media tra la tupla e un'altra tupla.
      *
@@ -76,13 +113,13 @@ public class Tuple implements Serializable {
      *
      * @return Distanza media tra la tupla e il cluster di riferimento.
      */
-    public double avgDistance(Data data, Set<Integer> clusteredData){
+    public double avgDistance(Data data, int[] clusteredData){
         double p = 0.0, sumD = 0.0;
-        for(Integer id: clusteredData){
+        for(int id: clusteredData){
             double d = getDistance(data.getItemSet(id));
             sumD += d;
         }
-        p = sumD/clusteredData.size();
+        p = sumD/clusteredData.length;
         return p;
     }
 
@@ -93,14 +130,14 @@ public class Tuple implements Serializable {
      */
     @Override
     public String toString() {
-        String itemString = "";
+        StringBuilder itemString = new StringBuilder();
         for (Item item : tuple) {
-            itemString += item.toString() + ", ";
+            itemString.append(item).append(", ");
         }
 
-        itemString = itemString.substring(0, itemString.length() - 2);
+        itemString.setLength(itemString.length() - 2);
 
-        return itemString;
+        return itemString.toString();
     }
 
 }
@@ -0,0 +1,101 @@
+package data;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Classe che calcola i contributi di un attributo alla distanza di un blocco di transazioni da una tupla con le
+ * istruzioni vettoriali del processore (Vector API). Ogni contributo viene sommato alle distanze nello stesso ordine
+ * del calcolo scalare, così che i risultati coincidano esattamente.
+ * La classe richiede il modulo {@code jdk.incubator.vector} e va usata solo se {@link Data#isVectorApiAvailable()}.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+final class VectorKernels {
+    /**
+     * Forma dei vettori di double preferita dal processore.
+     */
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * Forma dei vettori di interi con lo stesso numero di elementi dei vettori di double.
+     */
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+    /**
+     * Costruttore privato: la classe offre solo metodi statici.
+     */
+    private VectorKernels(){
+    }
+
+    /**
+     * Somma alla distanza di ogni transazione del blocco da ogni tupla la differenza assoluta tra il valore
+     * normalizzato della transazione per un attributo continuo e quello della tupla; un valore nullo non contribuisce.
+     * Ogni gruppo di valori della colonna viene letto una sola volta per tutte le tuple.
+     *
+     * @param column valori normalizzati dell'attributo.
+     * @param from indice della prima transazione.
+     * @param to indice successivo all'ultima transazione.
+     * @param values valore normalizzato di ogni tupla, NaN se nullo.
+     * @param distances distanze delle transazioni da ogni tupla, a partire dall'indice 0 per la transazione from.
+     */
+    static void addAbsoluteDifferences(double[] column, int from, int to, double[] values, double[][] distances){
+        int length = to - from;
+        int upperBound = DOUBLES.loopBound(length);
+        int i = 0;
+        for(; i < upperBound; i += DOUBLES.length()){
+            DoubleVector x = DoubleVector.fromArray(DOUBLES, column, from + i);
+            for(int t = 0; t < values.length; t++){
+                DoubleVector difference = x.sub(values[t]).abs();
+                DoubleVector distance = DoubleVector.fromArray(DOUBLES, distances[t], i);
+                distance.add(difference, difference.test(VectorOperators.IS_NAN).not()).intoArray(distances[t], i);
+            }
+        }
+        for(; i < length; i++){
+            for(int t = 0; t < values.length; t++){
+                double d = Math.abs(column[from + i] - values[t]);
+                if(!Double.isNaN(d))
+                    distances[t][i] += d;
+            }
+        }
+    }
+
+    /**
+     * Somma 1 alla distanza di ogni transazione del blocco da ogni tupla se il codice della transazione per un
+     * attributo discreto è nullo o diverso da quello della tupla.
+     * Ogni gruppo di codici della colonna viene letto una sola volta per tutte le tuple.
+     *
+     * @param column codici dell'attributo, -1 per i valori nulli.
+     * @param from indice della prima transazione.
+     * @param to indice successivo all'ultima transazione.
+     * @param codes codice di ogni tupla.
+     * @param distances distanze delle transazioni da ogni tupla, a partire dall'indice 0 per la transazione from.
+     */
+    static void addMismatches(int[] column, int from, int to, int[] codes, double[][] distances){
+        int length = to - from;
+        int upperBound = INTS.loopBound(length);
+        int i = 0;
+        for(; i < upperBound; i += INTS.length()){
+            IntVector x = IntVector.fromArray(INTS, column, from + i);
+            VectorMask<Integer> missing = x.compare(VectorOperators.LT, 0);
+            for(int t = 0; t < codes.length; t++){
+                VectorMask<Integer> mismatch = x.compare(VectorOperators.NE, codes[t]).or(missing);
+                //il conteggio resta intero fino alla conversione: sommare 0 non altera le distanze
+                DoubleVector increment = (DoubleVector) IntVector.zero(INTS).blend(1, mismatch)
+                        .convertShape(VectorOperators.I2D, DOUBLES, 0);
+                DoubleVector.fromArray(DOUBLES, distances[t], i).add(increment).intoArray(distances[t], i);
+            }
+        }
+        for(; i < length; i++){
+            int c = column[from + i];
+            for(int t = 0; t < codes.length; t++)
+                if(c < 0 || c != codes[t])
+                    distances[t][i] += 1;
+        }
+    }
+}
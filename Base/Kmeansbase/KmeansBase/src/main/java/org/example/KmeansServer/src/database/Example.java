@@ -64,7 +64,7 @@ public class Example implements Comparable<Example> {
     public String toString(){
         String str="";
         for(Object o:example)
-            str+=o.toString()+ " ";
+            str+=String.valueOf(o)+ " ";
         return str;
     }
 
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Classe che contiene i metodi per ottenere i dati da una tabella.
@@ -39,22 +40,41 @@ public class TableData {
      * @throws EmptySetException se la tabella è vuota.
      */
     public List<Example> getDistinctTransazioni(String table) throws SQLException, EmptySetException{
+        List<Example> list = new ArrayList<>();
+        scanDistinctTransazioni(table, list::add);
+        return list;
+    }
+
+    /**
+     * Scorre le transazioni distinte della tabella specificata consegnandole una alla volta al consumatore,
+     * senza mantenerle in memoria. I valori nulli delle colonne numeriche sono riportati come {@code null}.
+     *
+     * @param table nome della tabella.
+     * @param consumer destinatario delle transazioni lette.
+     *
+     * @throws SQLException se si verifica un errore nell'esecuzione della query.
+     * @throws EmptySetException se la tabella è vuota.
+     */
+    public void scanDistinctTransazioni(String table, Consumer<Example> consumer) throws SQLException, EmptySetException{
         TableSchema ts = new TableSchema(db, table);
         Statement s = db.getConnection().createStatement();
         ResultSet rs = s.executeQuery("SELECT DISTINCT * " + "FROM " + table + ";");
-        List<Example> list = new ArrayList<>();
+        boolean empty = true;
         while (rs.next()) {
             Example ex = new Example();
             for (int i = 0; i < ts.getNumberOfAttributes(); i++) {
-                if (ts.getColumn(i).isNumber()) ex.add(rs.getDouble(ts.getColumn(i).getColumnName()));
+                if (ts.getColumn(i).isNumber()) {
+                    double value = rs.getDouble(ts.getColumn(i).getColumnName());
+                    ex.add(rs.wasNull() ? null : value);
+                }
                 else ex.add(rs.getString(ts.getColumn(i).getColumnName()));
             }
-            list.add(ex);
+            consumer.accept(ex);
+            empty = false;
         }
         s.close();
         rs.close();
-        if (list.isEmpty()) throw new EmptySetException("Table " + table + " is empty");
-        return list;
+        if (empty) throw new EmptySetException("Table " + table + " is empty");
     }
 
     /**
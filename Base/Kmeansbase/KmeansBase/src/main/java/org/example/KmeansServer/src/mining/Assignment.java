@@ -0,0 +1,50 @@
+package mining;
+
+import data.Data;
+
+/**
+ * Classe astratta che rappresenta la strategia con cui, a ogni iterazione di K-means,
+ * le tuple vengono assegnate al cluster con il centroide più vicino.
+ * Blocchi disgiunti di tuple possono essere assegnati contemporaneamente da thread diversi.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+abstract class Assignment {
+    /**
+     * Prepara la strategia prima della prima iterazione, dopo l'inizializzazione dei centroidi.
+     *
+     * @param data dataset.
+     * @param clusters insieme dei cluster.
+     */
+    void initialize(Data data, ClusterSet clusters){
+    }
+
+    /**
+     * Assegna al cluster più vicino le tuple con indice compreso tra from (incluso) e to (escluso).
+     *
+     * @param data dataset.
+     * @param clusters insieme dei cluster.
+     * @param from indice della prima tupla.
+     * @param to indice successivo all'ultima tupla.
+     *
+     * @return spostamenti delle tuple che hanno cambiato cluster.
+     */
+    abstract ClusterSet.Moves assign(Data data, ClusterSet clusters, int from, int to);
+
+    /**
+     * Viene invocato prima dell'aggiornamento dei centroidi.
+     *
+     * @param clusters insieme dei cluster.
+     */
+    void centroidsUpdating(ClusterSet clusters){
+    }
+
+    /**
+     * Viene invocato dopo l'aggiornamento dei centroidi, se almeno una tupla ha cambiato cluster e quindi qualche
+     * centroide può essersi spostato, anche quando l'iterazione è l'ultima.
+     *
+     * @param clusters insieme dei cluster.
+     */
+    void centroidsUpdated(ClusterSet clusters){
+    }
+}
@@ -0,0 +1,121 @@
+package mining;
+
+import data.Data;
+import data.Tuple;
+
+/**
+ * Classe astratta per le strategie di assegnazione che mantengono, per ogni tupla, limiti alle distanze dai
+ * centroidi e calcolano solo le distanze che la disuguaglianza triangolare non permette di escludere.
+ * Una distanza viene esclusa solo se il centroide è certamente più lontano di quello assegnato, così che
+ * l'assegnazione, compresa la scelta del cluster d'indice minore a parità di distanza, sia identica a quella
+ * dell'algoritmo di Lloyd. Le tuple con valori continui nulli non rispettano la disuguaglianza triangolare
+ * come punto intermedio e per esse si usano solo i limiti sugli spostamenti dei centroidi; un centroide
+ * senza valore continuo (cluster vuoto) invalida i limiti di tutte le tuple rispetto a quel centroide.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+abstract class BoundedAssignment extends Assignment {
+    /**
+     * Margine con cui un limite deve superare la distanza dal centroide assegnato per escludere un calcolo,
+     * così che gli errori di arrotondamento accumulati sui limiti non cambino l'assegnazione.
+     */
+    static final double TOLERANCE = 1e-9;
+
+    /**
+     * Centroidi dei cluster.
+     */
+    Tuple[] centroids;
+
+    /**
+     * Limite superiore alla distanza di ogni tupla dal centroide del suo cluster.
+     */
+    double[] upper;
+
+    /**
+     * Spostamento di ogni centroide nell'ultimo aggiornamento, infinito se non è limitabile.
+     */
+    double[] shift;
+
+    /**
+     * Distanze tra i centroidi.
+     */
+    double[][] centroidDistances;
+
+    /**
+     * Metà della distanza di ogni centroide dal centroide più vicino.
+     */
+    double[] halfNearest;
+
+    /**
+     * Copie dei centroidi prima dell'aggiornamento.
+     */
+    private Tuple[] previous;
+
+    /**
+     * Alloca i limiti superiori delle tuple e le distanze tra i centroidi.
+     *
+     * @param data dataset.
+     * @param clusters insieme dei cluster.
+     */
+    @Override
+    void initialize(Data data, ClusterSet clusters){
+        int k = clusters.getNumberOfClusters();
+        centroids = new Tuple[k];
+        for(int c = 0; c < k; c++)
+            centroids[c] = clusters.get(c).getCentroid();
+        upper = new double[data.getNumberOfExamples()];
+        previous = new Tuple[k];
+        shift = new double[k];
+        centroidDistances = new double[k][k];
+        halfNearest = new double[k];
+    }
+
+    /**
+     * Verifica se un centroide è certamente più lontano, di almeno {@link #TOLERANCE}, del centroide assegnato.
+     *
+     * @param lowerBound limite inferiore alla distanza dal centroide.
+     * @param upperBound limite superiore alla distanza dal centroide assegnato.
+     *
+     * @return {@code true} se il calcolo della distanza può essere escluso.
+     */
+    static boolean excluded(double lowerBound, double upperBound){
+        return lowerBound > upperBound + TOLERANCE;
+    }
+
+    /**
+     * Copia i centroidi prima dell'aggiornamento, per misurarne lo spostamento.
+     *
+     * @param clusters insieme dei cluster.
+     */
+    @Override
+    void centroidsUpdating(ClusterSet clusters){
+        for(int c = 0; c < centroids.length; c++)
+            previous[c] = centroids[c].copy();
+    }
+
+    /**
+     * Calcola lo spostamento di ogni centroide e le distanze tra i centroidi aggiornati.
+     *
+     * @param clusters insieme dei cluster.
+     */
+    @Override
+    void centroidsUpdated(ClusterSet clusters){
+        for(int c = 0; c < centroids.length; c++){
+            if(previous[c].hasMissingContinuousValue() || centroids[c].hasMissingContinuousValue())
+                shift[c] = Double.POSITIVE_INFINITY;
+            else
+                shift[c] = previous[c].getDistance(centroids[c]);
+        }
+        for(int c = 0; c < centroids.length; c++){
+            halfNearest[c] = Double.POSITIVE_INFINITY;
+            for(int other = 0; other < centroids.length; other++){
+                if(other < c)
+                    centroidDistances[c][other] = centroidDistances[other][c];
+                else if(other > c)
+                    centroidDistances[c][other] = centroids[c].getDistance(centroids[other]);
+                if(other != c)
+                    halfNearest[c] = Math.min(halfNearest[c], centroidDistances[c][other] / 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package mining;
+
+import data.Data;
+import data.OutofRangeSampleSize;
+import data.Tuple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Classe che sceglie le transazioni da usare come centroidi iniziali di K-means.
+ * Le scansioni del dataset sono suddivise in blocchi eseguiti dai thread dell'esecutore; le somme parziali dei
+ * blocchi vengono combinate nell'ordine dei blocchi, così che la scelta non dipenda dal grado di parallelismo.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+class CentroidSeeding {
+    /**
+     * Costruttore privato: la classe offre solo metodi statici.
+     */
+    private CentroidSeeding(){
+    }
+
+    /**
+     * Sceglie k centroidi nel modo indicato. Con lo stesso generatore, i centroidi scelti per un k sono i primi di
+     * quelli scelti per un k maggiore, tranne che con k-means||, che estrae un numero di candidate proporzionale a k.
+     *
+     * @param data dataset.
+     * @param k numero di centroidi.
+     * @param seeding modo in cui scegliere i centroidi.
+     * @param rounds numero di turni di estrazione di k-means||.
+     * @param oversampling numero medio di candidate estratte per turno da k-means||, in rapporto a k.
+     * @param random generatore di numeri casuali.
+     * @param executor esecutore dei blocchi di transazioni.
+     *
+     * @return indici delle transazioni scelte come centroidi.
+     *
+     * @throws OutofRangeSampleSize se k non è compreso tra 1 e il numero di transazioni.
+     */
+    static int[] centroidIndexes(Data data, int k, SEEDING_TYPE seeding, int rounds, double oversampling, Random random,
+                                 ChunkExecutor executor) throws OutofRangeSampleSize {
+        switch(seeding){
+            case KMEANS_PLUS_PLUS:
+                return kmeansPlusPlus(data, k, random, executor);
+            case KMEANS_PARALLEL:
+                return kmeansParallel(data, k, rounds, oversampling, random, executor);
+            default:
+                return data.sampling(k, random);
+        }
+    }
+
+    /**
+     * Sceglie k centroidi con l'algoritmo k-means++: il primo a caso, ogni successivo con probabilità
+     * proporzionale al quadrato della distanza della transazione dal centroide già scelto più vicino.
+     * Richiede una scansione del dataset per ogni centroide.
+     *
+     * @param data dataset.
+     * @param k numero di centroidi.
+     * @param random generatore di numeri casuali.
+     * @param executor esecutore dei blocchi di transazioni.
+     *
+     * @return indici delle transazioni scelte come centroidi.
+     *
+     * @throws OutofRangeSampleSize se k non è compreso tra 1 e il numero di transazioni.
+     */
+    static int[] kmeansPlusPlus(Data data, int k, Random random, ChunkExecutor executor) throws OutofRangeSampleSize {
+        int n = data.getNumberOfExamples();
+        if(k <= 0 || k > n)
+            throw new OutofRangeSampleSize("invalid k value");
+
+        int[] centroidIndexes = new int[k];
+        boolean[] chosen = new boolean[n];
+        double[] weights = new double[n];
+        centroidIndexes[0] = random.nextInt(n);
+        chosen[centroidIndexes[0]] = true;
+        for(int i = 1; i < k; i++){
+            Tuple centroid = data.getItemSet(centroidIndexes[i - 1]);
+            boolean first = i == 1;
+            //il peso di ogni transazione segue il centroide appena scelto
+            List<Double> sums = executor.map(n, (from, to) -> {
+                double sum = 0;
+                for(int x = from; x < to; x++){
+                    double d = data.distance(x, centroid);
+                    if(first || d * d < weights[x])
+                        weights[x] = d * d;
+                    sum += weights[x];
+                }
+                return sum;
+            });
+            int next = pick(weights, sums, random);
+            if(next < 0 || chosen[next]){
+                //tutte le transazioni coincidono con un centroide già scelto
+                do
+                    next = random.nextInt(n);
+                while(chosen[next]);
+            }
+            centroidIndexes[i] = next;
+            chosen[next] = true;
+        }
+        return centroidIndexes;
+    }
+
+    /**
+     * Sceglie k centroidi con l'algoritmo k-means||: a partire da una transazione scelta a caso, in ogni turno
+     * ciascuna transazione diventa candidata, indipendentemente dalle altre, con probabilità proporzionale al
+     * quadrato della distanza dalla candidata più vicina, così che in media ne siano estratte oversampling * k
+     * per turno. Ogni candidata riceve come peso il numero di transazioni di cui è la candidata più vicina e tra
+     * le candidate si scelgono i k centroidi con k-means++ pesato.
+     * Ogni turno richiede una scansione del dataset, che confronta le transazioni con le sole candidate appena
+     * estratte, e una lettura dei pesi; il numero di scansioni non dipende da k. Se le candidate distinte sono meno
+     * di k, ad esempio perché i turni sono pochi, i centroidi sono scelti con k-means++ sull'intero dataset, così che
+     * nessuna transazione sia scelta due volte finché k non supera il numero di transazioni distinte.
+     *
+     * @param data dataset.
+     * @param k numero di centroidi.
+     * @param rounds numero di turni di estrazione.
+     * @param oversampling numero medio di candidate estratte per turno, in rapporto a k.
+     * @param random generatore di numeri casuali.
+     * @param executor esecutore dei blocchi di transazioni.
+     *
+     * @return indici delle transazioni scelte come centroidi.
+     *
+     * @throws OutofRangeSampleSize se k non è compreso tra 1 e il numero di transazioni.
+     */
+    static int[] kmeansParallel(Data data, int k, int rounds, double oversampling, Random random, ChunkExecutor executor)
+            throws OutofRangeSampleSize {
+        int n = data.getNumberOfExamples();
+        if(k <= 0 || k > n)
+            throw new OutofRangeSampleSize("invalid k value");
+
+        double[] weights = new double[n];
+        int[] nearest = new int[n];
+        List<Integer> candidates = new ArrayList<>();
+        candidates.add(random.nextInt(n));
+        int added = 0;
+        for(int round = 0; round <= rounds; round++){
+            //le transazioni si confrontano con le sole candidate estratte nel turno precedente
+            int first = added;
+            List<Tuple> tuples = new ArrayList<>();
+            for(int c = first; c < candidates.size(); c++)
+                tuples.add(data.getItemSet(candidates.get(c)));
+            added = candidates.size();
+            List<Double> sums = executor.map(n, (from, to) -> {
+                double sum = 0;
+                for(int x = from; x < to; x++){
+                    for(int c = 0; c < tuples.size(); c++){
+                        double d = data.distance(x, tuples.get(c));
+                        if(first + c == 0 || d * d < weights[x]){
+                            weights[x] = d * d;
+                            nearest[x] = first + c;
+                        }
+                    }
+                    sum += weights[x];
+                }
+                return sum;
+            });
+            double total = 0;
+            for(double sum : sums)
+                total += sum;
+            if(round == rounds || !(total > 0))
+                break;
+
+            //ogni blocco estrae le sue candidate con un proprio generatore, indipendente dal grado di parallelismo
+            double expected = oversampling * k;
+            double cost = total;
+            long seed = random.nextLong();
+            for(List<Integer> sampled : executor.map(n, (from, to) -> {
+                Random chunkRandom = new Random(seed + from);
+                List<Integer> chunkCandidates = new ArrayList<>();
+                for(int x = from; x < to; x++)
+                    if(chunkRandom.nextDouble() * cost < expected * weights[x])
+                        chunkCandidates.add(x);
+                return chunkCandidates;
+            }))
+                candidates.addAll(sampled);
+        }
+
+        double[] candidateWeights = new double[candidates.size()];
+        for(int x = 0; x < n; x++)
+            candidateWeights[nearest[x]]++;
+        int[] centroidIndexes = weightedKmeansPlusPlus(data, candidates, candidateWeights, k, random);
+        return centroidIndexes != null ? centroidIndexes : kmeansPlusPlus(data, k, random, executor);
+    }
+
+    /**
+     * Sceglie k centroidi tra le candidate con k-means++ pesato: ogni candidata viene estratta con probabilità
+     * proporzionale al suo peso per il quadrato della distanza dalla candidata già scelta più vicina.
+     * Una candidata uguale a una già scelta ha distanza nulla e non viene estratta.
+     *
+     * @param data dataset.
+     * @param candidates indici delle transazioni candidate.
+     * @param candidateWeights peso di ogni candidata.
+     * @param k numero di centroidi.
+     * @param random generatore di numeri casuali.
+     *
+     * @return indici delle transazioni scelte come centroidi, {@code null} se le candidate distinte sono meno di k.
+     */
+    private static int[] weightedKmeansPlusPlus(Data data, List<Integer> candidates, double[] candidateWeights, int k,
+                                                Random random){
+        int[] centroidIndexes = new int[k];
+        int m = candidates.size();
+        if(m < k)
+            return null;
+
+        double[] distances = new double[m];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        double[] weights = candidateWeights.clone();
+        boolean[] chosen = new boolean[m];
+        for(int i = 0; i < k; i++){
+            int next = pick(weights, random);
+            if(next < 0)
+                //le candidate rimaste coincidono con quelle già scelte
+                return null;
+            chosen[next] = true;
+            centroidIndexes[i] = candidates.get(next);
+            if(i == k - 1)
+                break;
+            //i pesi servono solo per la scelta successiva
+            Tuple centroid = data.getItemSet(centroidIndexes[i]);
+            for(int c = 0; c < m; c++){
+                if(!chosen[c]){
+                    double d = data.distance(candidates.get(c), centroid);
+                    distances[c] = Math.min(distances[c], d * d);
+                }
+                weights[c] = chosen[c] ? 0 : candidateWeights[c] * distances[c];
+            }
+        }
+        return centroidIndexes;
+    }
+
+    /**
+     * Estrae un indice con probabilità proporzionale al suo peso.
+     *
+     * @param weights peso di ogni indice.
+     * @param random generatore di numeri casuali.
+     *
+     * @return indice estratto, -1 se tutti i pesi sono nulli.
+     */
+    private static int pick(double[] weights, Random random){
+        double total = 0;
+        for(double weight : weights)
+            total += weight;
+        if(!(total > 0))
+            return -1;
+        double r = random.nextDouble() * total;
+        int last = -1;
+        for(int i = 0; i < weights.length; i++){
+            if(weights[i] > 0){
+                last = i;
+                if(r < weights[i])
+                    return i;
+                r -= weights[i];
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Estrae una transazione con probabilità proporzionale al suo peso, individuando prima il blocco
+     * con le somme parziali e poi la transazione al suo interno.
+     *
+     * @param weights peso di ogni transazione.
+     * @param sums somma dei pesi di ogni blocco di {@link ChunkExecutor#CHUNK_SIZE} transazioni.
+     * @param random generatore di numeri casuali.
+     *
+     * @return indice della transazione estratta, -1 se tutti i pesi sono nulli.
+     */
+    static int pick(double[] weights, List<Double> sums, Random random){
+        double total = 0;
+        for(double sum : sums)
+            total += sum;
+        if(!(total > 0))
+            return -1;
+        double r = random.nextDouble() * total;
+        int last = -1;
+        for(int chunk = 0; chunk < sums.size(); chunk++){
+            if(r >= sums.get(chunk) && chunk < sums.size() - 1){
+                r -= sums.get(chunk);
+                continue;
+            }
+            int from = chunk * ChunkExecutor.CHUNK_SIZE;
+            int to = Math.min(weights.length, from + ChunkExecutor.CHUNK_SIZE);
+            for(int x = from; x < to; x++){
+                if(weights[x] > 0){
+                    last = x;
+                    if(r < weights[x])
+                        return x;
+                    r -= weights[x];
+                }
+            }
+            if(last >= 0)
+                return last;
+        }
+        return last;
+    }
+}
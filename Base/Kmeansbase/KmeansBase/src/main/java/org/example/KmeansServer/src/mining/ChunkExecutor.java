@@ -0,0 +1,147 @@
+package mining;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Classe che esegue un'elaborazione sulle transazioni di un dataset suddividendole in blocchi di dimensione fissa.
+ * I blocchi sono eseguiti in parallelo su un pool di thread, oppure in sequenza se il grado di parallelismo è 1.
+ * Poiché la suddivisione non dipende dal numero di thread, i risultati dei blocchi, restituiti sempre nello
+ * stesso ordine, non dipendono dal grado di parallelismo.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+class ChunkExecutor implements AutoCloseable {
+    /**
+     * Numero di transazioni per blocco.
+     */
+    static final int CHUNK_SIZE = 4096;
+
+    /**
+     * Elaborazione da eseguire su un blocco di transazioni.
+     *
+     * @param <T> tipo del risultato del blocco.
+     */
+    interface ChunkTask<T> {
+        /**
+         * Elabora le transazioni con indice compreso tra from (incluso) e to (escluso).
+         *
+         * @param from indice della prima transazione del blocco.
+         * @param to indice successivo all'ultima transazione del blocco.
+         *
+         * @return risultato del blocco.
+         */
+        T run(int from, int to);
+    }
+
+    /**
+     * Grado di parallelismo.
+     */
+    private final int parallelism;
+
+    /**
+     * Pool di thread, {@code null} se il grado di parallelismo è 1.
+     */
+    private final ExecutorService pool;
+
+    /**
+     * Costruttore parametrizzato.
+     *
+     * @param parallelism numero di thread da usare, almeno 1.
+     */
+    ChunkExecutor(int parallelism){
+        this.parallelism = Math.max(1, parallelism);
+        this.pool = this.parallelism > 1 ? Executors.newFixedThreadPool(this.parallelism) : null;
+    }
+
+    /**
+     * Restituisce il grado di parallelismo.
+     *
+     * @return numero di thread usati.
+     */
+    int getParallelism(){
+        return parallelism;
+    }
+
+    /**
+     * Esegue un'elaborazione su tutti i blocchi in cui sono suddivise n transazioni.
+     *
+     * @param n numero di transazioni.
+     * @param task elaborazione da eseguire su ogni blocco.
+     * @param <T> tipo del risultato di ogni blocco.
+     *
+     * @return risultati dei blocchi, nell'ordine dei blocchi.
+     */
+    <T> List<T> map(int n, ChunkTask<T> task){
+        return run(n, CHUNK_SIZE, task);
+    }
+
+    /**
+     * Esegue un'elaborazione su al più parts blocchi contigui in cui sono suddivise n transazioni.
+     * Serve alle elaborazioni che producono un risultato parziale ingombrante per ogni blocco:
+     * il numero di blocchi resta limitato e, come la loro dimensione, non dipende dal grado di parallelismo.
+     *
+     * @param n numero di transazioni.
+     * @param parts numero massimo di blocchi.
+     * @param task elaborazione da eseguire su ogni blocco.
+     * @param <T> tipo del risultato di ogni blocco.
+     *
+     * @return risultati dei blocchi, nell'ordine dei blocchi.
+     */
+    <T> List<T> mapParts(int n, int parts, ChunkTask<T> task){
+        int chunksPerPart = Math.max(1, (n + CHUNK_SIZE * parts - 1) / (CHUNK_SIZE * parts));
+        return run(n, chunksPerPart * CHUNK_SIZE, task);
+    }
+
+    /**
+     * Esegue un'elaborazione su tutti i blocchi di dimensione size in cui sono suddivise n transazioni.
+     *
+     * @param n numero di transazioni.
+     * @param size numero di transazioni per blocco.
+     * @param task elaborazione da eseguire su ogni blocco.
+     * @param <T> tipo del risultato di ogni blocco.
+     *
+     * @return risultati dei blocchi, nell'ordine dei blocchi.
+     */
+    private <T> List<T> run(int n, int size, ChunkTask<T> task){
+        List<T> results = new ArrayList<>();
+        if(pool == null){
+            for(int from = 0; from < n; from += size)
+                results.add(task.run(from, Math.min(n, from + size)));
+            return results;
+        }
+
+        List<Callable<T>> chunks = new ArrayList<>();
+        for(int from = 0; from < n; from += size){
+            int start = from;
+            int end = Math.min(n, from + size);
+            chunks.add(() -> task.run(start, end));
+        }
+        try {
+            for(Future<T> result : pool.invokeAll(chunks))
+                results.add(result.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel execution interrupted");
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Termina il pool di thread.
+     */
+    @Override
+    public void close(){
+        if(pool != null)
+            pool.shutdown();
+    }
+}
\ No newline at end of file
@@ -1,9 +1,18 @@
 package mining;
 import data.Data;
+import data.SufficientStatistics;
 import data.Tuple;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.util.HashSet;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Classe che rappresenta un cluster.
@@ -12,16 +21,54 @@ import java.util.Set;
  */
 
 public class Cluster implements Serializable {
+    /**
+     * Versione della forma serializzata, uguale a quella dei file già salvati.
+     */
+    private static final long serialVersionUID = -1487019966428270197L;
+
+    /**
+     * Forma serializzata del cluster: il centroide e l'insieme degli indici delle tuple, come nei file già salvati.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("centroid", Tuple.class),
+            new ObjectStreamField("clusteredData", Set.class)
+    };
+
 
     /**
      * Centroide del cluster.
      */
-    private final Tuple centroid;
+    private Tuple centroid;
+
+    /**
+     * Indici, in ordine crescente, delle tuple appartenenti al cluster.
+     */
+    private int[] clusteredData;
+
+    /**
+     * Statistiche sufficienti delle tuple assegnate al cluster, mantenute durante l'esecuzione di K-means.
+     */
+    private transient SufficientStatistics statistics;
+
+    /**
+     * Numero di tuple assegnate al cluster al termine di K-means.
+     */
+    private transient int size;
 
     /**
-     * Insieme degli indici delle tuple appartenenti al cluster.
+     * Somma delle distanze delle tuple dal centroide al termine di K-means.
      */
-    private final Set<Integer> clusteredData;
+    private transient double distanceSum;
+
+    /**
+     * Somma dei quadrati delle distanze delle tuple dal centroide (SSE) al termine di K-means.
+     */
+    private transient double sse;
+
+    /**
+     * Distanza massima di una tupla dal centroide (raggio) al termine di K-means.
+     */
+    private transient double radius;
 
     /**
      * Costruttore parametrizzato.
@@ -30,7 +77,7 @@ public class Cluster implements Serializable {
      */
     Cluster(Tuple centroid){
         this.centroid = centroid;
-        clusteredData = new HashSet<Integer>();
+        clusteredData = new int[0];
     }
 
     /**
@@ -43,25 +90,116 @@ public class Cluster implements Serializable {
     }
 
     /**
-     * Aggiorna il centroide del cluster.
+     * Sostituisce il centroide del cluster.
      *
-     * @param data dataset.
+     * @param centroid nuovo centroide del cluster.
      */
-    void computeCentroid(Data data){
-        for(int i = 0; i < centroid.getLength(); i++){
-            centroid.get(i).update(data, clusteredData);
-        }
+    void setCentroid(Tuple centroid){
+        this.centroid = centroid;
+    }
+
+    /**
+     * Restituisce le statistiche sufficienti delle tuple assegnate al cluster.
+     *
+     * @return statistiche del cluster, {@code null} se non sono ancora state calcolate.
+     */
+    SufficientStatistics getStatistics(){
+        return statistics;
+    }
+
+    /**
+     * Imposta le statistiche sufficienti delle tuple assegnate al cluster e ne ricalcola il centroide.
+     *
+     * @param statistics statistiche del cluster.
+     */
+    void setStatistics(SufficientStatistics statistics){
+        this.statistics = statistics;
+        statistics.updateCentroid(centroid);
+    }
+
+    /**
+     * Ricalcola il centroide dalle statistiche sufficienti del cluster.
+     */
+    void computeCentroid(){
+        statistics.updateCentroid(centroid);
+    }
+
+    /**
+     * Imposta le statistiche delle distanze delle tuple dal centroide, calcolate al termine di K-means.
+     *
+     * @param size numero di tuple del cluster.
+     * @param distanceSum somma delle distanze dal centroide.
+     * @param sse somma dei quadrati delle distanze dal centroide.
+     * @param radius distanza massima dal centroide.
+     */
+    void setDistanceStatistics(int size, double distanceSum, double sse, double radius){
+        this.size = size;
+        this.distanceSum = distanceSum;
+        this.sse = sse;
+        this.radius = radius;
     }
 
     /**
-     * Aggiunge un'istanza al cluster.
+     * Restituisce il numero di tuple assegnate al cluster al termine di K-means.
      *
-     * @param id indice dell'istanza da aggiungere.
+     * @return numero di tuple.
+     */
+    public int getSize(){
+        return size;
+    }
+
+    /**
+     * Restituisce la somma delle distanze delle tuple dal centroide al termine di K-means.
+     *
+     * @return somma delle distanze.
+     */
+    double getDistanceSum(){
+        return distanceSum;
+    }
+
+    /**
+     * Restituisce la distanza media delle tuple dal centroide al termine di K-means.
+     *
+     * @return distanza media, NaN se il cluster è vuoto.
+     */
+    public double getMeanDistance(){
+        return distanceSum / size;
+    }
+
+    /**
+     * Restituisce la somma dei quadrati delle distanze delle tuple dal centroide (SSE) al termine di K-means.
      *
-     * @return {@code true} se l'istanza viene aggiunta, {@code false} altrimenti.
+     * @return SSE del cluster.
      */
-    boolean addData(int id){
-        return clusteredData.add(id);
+    public double getSse(){
+        return sse;
+    }
+
+    /**
+     * Restituisce la distanza massima di una tupla dal centroide al termine di K-means.
+     *
+     * @return raggio del cluster.
+     */
+    public double getRadius(){
+        return radius;
+    }
+
+    /**
+     * Sostituisce l'insieme delle istanze appartenenti al cluster.
+     *
+     * @param clusteredData indici, in ordine crescente, delle istanze del cluster.
+     */
+    void setClusteredData(int[] clusteredData){
+        this.clusteredData = clusteredData;
+    }
+
+    /**
+     * Restituisce gli indici delle istanze appartenenti al cluster.
+     *
+     * @return indici, in ordine crescente, delle istanze del cluster.
+     */
+    int[] getClusteredData(){
+        return clusteredData;
     }
 
     /**
@@ -72,16 +210,38 @@ public class Cluster implements Serializable {
      * @return {@code true} se il cluster contiene l'istanza, {@code false} altrimenti.
      */
     boolean contain(int id){
-        return clusteredData.contains(id);
+        return Arrays.binarySearch(clusteredData, id) >= 0;
     }
 
     /**
-     * Rimuove un'istanza dal cluster.
+     * Scrive il centroide e gli indici delle tuple del cluster.
      *
-     * @param id indice dell'istanza da rimuovere.
+     * @param out stream di output.
+     * @throws IOException se la scrittura non riesce.
      */
-    void removeTuple(int id){
-        clusteredData.remove(id);
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        Set<Integer> ids = new TreeSet<>();
+        for(int id : clusteredData)
+            ids.add(id);
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("centroid", centroid);
+        fields.put("clusteredData", ids);
+        out.writeFields();
+    }
+
+    /**
+     * Legge il centroide e gli indici delle tuple del cluster, riportandoli in ordine crescente.
+     *
+     * @param in stream di input.
+     * @throws IOException se la lettura non riesce.
+     * @throws ClassNotFoundException se la classe di un oggetto letto non è disponibile.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        centroid = (Tuple) fields.get("centroid", null);
+        Set<Integer> ids = (Set<Integer>) fields.get("clusteredData", null);
+        clusteredData = ids.stream().mapToInt(Integer::intValue).sorted().toArray();
     }
 
     /**
@@ -90,11 +250,11 @@ public class Cluster implements Serializable {
      * @return una stringa che rappresenta il cluster mediante la stampa dei valori del centroide.
      */
     public String toString(){
-        String str = "Centroid=(";
+        StringBuilder str = new StringBuilder("Centroid=(");
         for(int i = 0; i < centroid.getLength(); i++)
-            str += centroid.get(i)+" ";
-        str += ")";
-        return str;
+            str.append(centroid.get(i)).append(" ");
+        str.append(")");
+        return str.toString();
     }
 
 
@@ -106,21 +266,45 @@ public class Cluster implements Serializable {
      * @return stringa che rappresenta il cluster con le relative tuple(esempi) che vi appartengono.
      */
     public String toString(Data data){
-        String str = "Centroid=(";
-        for(int i = 0; i < centroid.getLength(); i++)
-            str += centroid.get(i)+ " ";
-        str += ")\nExamples:\n";
-
-        Set<Integer> array = clusteredData;
-        for(Integer id : array) {
-            str += "[";
-                str += data.getItemSet(id)+ " ";
-            str += "] dist=" + getCentroid().getDistance(data.getItemSet(id)) + "\n";
+        StringWriter str = new StringWriter();
+        try {
+            write(str, data, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        str += "AvgDistance="+getCentroid().avgDistance(data, array);
-        str += "\n";
-        return str;
+        return str.toString();
+    }
+
+    /**
+     * Scrive la rappresentazione del cluster con le relative tuple(esempi) che vi appartengono, una tupla alla volta.
+     * Se le distanze delle tuple dai centroidi sono state conservate al termine di K-means, riporta quelle e le
+     * statistiche del cluster senza calcolare alcuna distanza; altrimenti le calcola una volta per tupla.
+     *
+     * @param out destinazione del testo.
+     * @param data dataset.
+     * @param distances distanza di ogni tupla dal centroide del proprio cluster, {@code null} se non conservate.
+     *
+     * @throws IOException se la scrittura non riesce.
+     */
+    void write(Writer out, Data data, double[] distances) throws IOException {
+        out.write(toString());
+        out.write("\nExamples:\n");
 
+        double sum = 0, squares = 0, maximum = 0;
+        for(int id : clusteredData) {
+            Tuple example = data.getItemSet(id);
+            double d = distances != null ? distances[id] : centroid.getDistance(example);
+            out.write("[" + example + " ] dist=" + d + "\n");
+            sum += d;
+            squares += d * d;
+            maximum = Math.max(maximum, d);
+        }
+        //la riga AvgDistance resta nella forma letta dai client, le altre statistiche seguono su una riga propria
+        if(distances != null)
+            out.write("AvgDistance=" + getMeanDistance() + "\nSSE=" + sse + " MaxDistance=" + radius);
+        else
+            out.write("AvgDistance=" + sum / clusteredData.length + "\nSSE=" + squares + " MaxDistance=" + maximum);
+        out.write("\n");
     }
 
 }
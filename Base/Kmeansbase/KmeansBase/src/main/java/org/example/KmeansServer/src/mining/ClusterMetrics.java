@@ -0,0 +1,255 @@
+package mining;
+
+import data.Data;
+import data.SufficientStatistics;
+import data.Tuple;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Classe che misura la qualità di un insieme di cluster con tre indici calcolati con la distanza del dataset:
+ * <ul>
+ *     <li>silhouette semplificata: media su tutte le tuple di (b - a) / max(a, b), dove a è la distanza dal centroide
+ *     del proprio cluster e b quella dal centroide più vicino tra gli altri; tra -1 e 1, migliore se alta;</li>
+ *     <li>Davies–Bouldin: media sui cluster del massimo, sugli altri cluster, del rapporto tra la somma delle distanze
+ *     medie dai due centroidi e la distanza tra i centroidi; migliore se bassa;</li>
+ *     <li>Calinski–Harabasz: rapporto tra la dispersione dei centroidi attorno al centroide del dataset e quella
+ *     delle tuple attorno ai propri centroidi, misurate con i quadrati delle distanze e divise per i rispettivi
+ *     gradi di libertà; migliore se alta.</li>
+ * </ul>
+ * Gli indici richiedono una sola scansione del dataset, che confronta ogni tupla con tutti i centroidi, suddivisa
+ * tra i thread dell'esecutore: la memoria non dipende dal numero di tuple e le somme parziali dei blocchi sono
+ * combinate nell'ordine dei blocchi. I cluster vuoti sono ignorati, anche come cluster più vicino nella silhouette;
+ * con meno di due cluster non vuoti gli indici non sono definiti e valgono NaN, così come l'indice di
+ * Calinski–Harabasz quando la dispersione delle tuple attorno ai propri centroidi è nulla.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+public class ClusterMetrics {
+    /**
+     * Somme parziali raccolte da un blocco di tuple.
+     */
+    private static class Partial {
+        /**
+         * Numero di tuple di ogni cluster.
+         */
+        private final int[] sizes;
+        /**
+         * Somma delle distanze delle tuple di ogni cluster dal centroide.
+         */
+        private final double[] distances;
+        /**
+         * Somma dei quadrati delle distanze delle tuple dal centroide del proprio cluster.
+         */
+        private double squares;
+        /**
+         * Somma della silhouette semplificata delle tuple.
+         */
+        private double silhouette;
+        /**
+         * Statistiche sufficienti di tutte le tuple, per il centroide del dataset.
+         */
+        private final SufficientStatistics statistics;
+
+        /**
+         * Crea somme parziali vuote.
+         *
+         * @param data dataset.
+         * @param k numero di cluster.
+         */
+        Partial(Data data, int k){
+            sizes = new int[k];
+            distances = new double[k];
+            statistics = new SufficientStatistics(data);
+        }
+    }
+
+    /**
+     * Silhouette semplificata.
+     */
+    private final double silhouette;
+
+    /**
+     * Indice di Davies–Bouldin.
+     */
+    private final double daviesBouldin;
+
+    /**
+     * Indice di Calinski–Harabasz.
+     */
+    private final double calinskiHarabasz;
+
+    /**
+     * Durata del calcolo degli indici, in millisecondi.
+     */
+    private final long time;
+
+    /**
+     * Calcola gli indici di qualità di un insieme di cluster con tutte le tuple assegnate.
+     *
+     * @param data dataset su cui è stato calcolato il clustering.
+     * @param clusters insieme dei cluster.
+     * @param executor esecutore dei blocchi di tuple.
+     * @param vectorized {@code true} per calcolare le distanze con la Vector API, se disponibile.
+     */
+    ClusterMetrics(Data data, ClusterSet clusters, ChunkExecutor executor, boolean vectorized){
+        long start = System.currentTimeMillis();
+        int n = data.getNumberOfExamples();
+        int k = clusters.getNumberOfClusters();
+        Tuple[] centroids = new Tuple[k];
+        for(int c = 0; c < k; c++)
+            centroids[c] = clusters.get(c).getCentroid();
+        boolean[] empty = new boolean[k];
+        Arrays.fill(empty, true);
+        for(int x = 0; x < n; x++)
+            empty[clusters.getAssignment(x)] = false;
+
+        List<Partial> partials = executor.mapParts(n, ClusterSet.STATISTICS_PARTS,
+                (from, to) -> scan(data, clusters, centroids, empty, from, to, vectorized));
+        Partial total = partials.get(0);
+        for(int part = 1; part < partials.size(); part++){
+            Partial partial = partials.get(part);
+            for(int c = 0; c < k; c++){
+                total.sizes[c] += partial.sizes[c];
+                total.distances[c] += partial.distances[c];
+            }
+            total.squares += partial.squares;
+            total.silhouette += partial.silhouette;
+            total.statistics.merge(partial.statistics);
+        }
+
+        int nonEmpty = 0;
+        for(int size : total.sizes)
+            if(size > 0)
+                nonEmpty++;
+        if(nonEmpty < 2){
+            silhouette = Double.NaN;
+            daviesBouldin = Double.NaN;
+            calinskiHarabasz = Double.NaN;
+            time = System.currentTimeMillis() - start;
+            return;
+        }
+        silhouette = total.silhouette / n;
+
+        double ratios = 0;
+        for(int i = 0; i < k; i++){
+            if(total.sizes[i] == 0)
+                continue;
+            double worst = 0;
+            for(int j = 0; j < k; j++){
+                if(j == i || total.sizes[j] == 0)
+                    continue;
+                double separation = centroids[i].getDistance(centroids[j]);
+                //centroidi coincidenti non contribuiscono, come nella definizione di uso comune
+                if(separation > 0)
+                    worst = Math.max(worst, (total.distances[i] / total.sizes[i] + total.distances[j] / total.sizes[j]) / separation);
+            }
+            ratios += worst;
+        }
+        daviesBouldin = ratios / nonEmpty;
+
+        Tuple center = centroids[0].copy();
+        total.statistics.updateCentroid(center);
+        double between = 0;
+        for(int c = 0; c < k; c++){
+            double d = centroids[c].getDistance(center);
+            between += total.sizes[c] * d * d;
+        }
+        calinskiHarabasz = n == nonEmpty || !(total.squares > 0) ? Double.NaN
+                : (between / (nonEmpty - 1)) / (total.squares / (n - nonEmpty));
+        time = System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Raccoglie le somme parziali delle tuple con indice compreso tra from (incluso) e to (escluso), calcolando le
+     * distanze da tutti i centroidi per riquadri di {@link ClusterSet#TILE_ROWS} tuple.
+     *
+     * @param data dataset.
+     * @param clusters insieme dei cluster.
+     * @param centroids centroide di ogni cluster.
+     * @param empty {@code true} per i cluster senza tuple, esclusi dalla ricerca del centroide più vicino tra gli altri.
+     * @param from indice della prima tupla.
+     * @param to indice successivo all'ultima tupla.
+     * @param vectorized {@code true} per calcolare le distanze con la Vector API, se disponibile.
+     *
+     * @return somme parziali del blocco.
+     */
+    private static Partial scan(Data data, ClusterSet clusters, Tuple[] centroids, boolean[] empty, int from, int to,
+                                boolean vectorized){
+        int k = centroids.length;
+        Partial partial = new Partial(data, k);
+        double[][] distances = new double[k][ClusterSet.TILE_ROWS];
+        for(int rowFrom = from; rowFrom < to; rowFrom += ClusterSet.TILE_ROWS){
+            int rowTo = Math.min(to, rowFrom + ClusterSet.TILE_ROWS);
+            for(int group = 0; group < k; group += ClusterSet.TILE_CENTROIDS){
+                int end = Math.min(k, group + ClusterSet.TILE_CENTROIDS);
+                data.distances(rowFrom, rowTo, Arrays.copyOfRange(centroids, group, end),
+                        Arrays.copyOfRange(distances, group, end), vectorized);
+            }
+            for(int x = rowFrom; x < rowTo; x++){
+                int c = clusters.getAssignment(x);
+                double a = distances[c][x - rowFrom];
+                double b = Double.POSITIVE_INFINITY;
+                for(int other = 0; other < k; other++)
+                    if(other != c && !empty[other])
+                        b = Math.min(b, distances[other][x - rowFrom]);
+                partial.sizes[c]++;
+                partial.distances[c] += a;
+                partial.squares += a * a;
+                double spread = Math.max(a, b);
+                if(spread > 0 && spread < Double.POSITIVE_INFINITY)
+                    partial.silhouette += (b - a) / spread;
+                partial.statistics.add(data, x);
+            }
+        }
+        return partial;
+    }
+
+    /**
+     * Restituisce la silhouette semplificata.
+     *
+     * @return silhouette, tra -1 e 1.
+     */
+    public double getSilhouette(){
+        return silhouette;
+    }
+
+    /**
+     * Restituisce l'indice di Davies–Bouldin.
+     *
+     * @return indice di Davies–Bouldin.
+     */
+    public double getDaviesBouldin(){
+        return daviesBouldin;
+    }
+
+    /**
+     * Restituisce l'indice di Calinski–Harabasz.
+     *
+     * @return indice di Calinski–Harabasz.
+     */
+    public double getCalinskiHarabasz(){
+        return calinskiHarabasz;
+    }
+
+    /**
+     * Restituisce la durata del calcolo degli indici.
+     *
+     * @return durata in millisecondi.
+     */
+    public long getTime(){
+        return time;
+    }
+
+    /**
+     * Restituisce una stringa che rappresenta gli indici di qualità.
+     *
+     * @return stringa con la silhouette, gli indici di Davies–Bouldin e Calinski–Harabasz e la durata del calcolo.
+     */
+    @Override
+    public String toString(){
+        return String.format("Silhouette (simplified): %.4f\nDavies-Bouldin index: %.4f\nCalinski-Harabasz index: %.4f\n" +
+                "Metrics time: %d ms", silhouette, daviesBouldin, calinskiHarabasz, time);
+    }
+}
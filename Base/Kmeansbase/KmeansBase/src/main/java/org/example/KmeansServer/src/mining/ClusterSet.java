@@ -2,9 +2,17 @@ package mining;
 
 import data.Data;
 import data.OutofRangeSampleSize;
+import data.SufficientStatistics;
 import data.Tuple;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 /**
  * Classe che rappresenta l'insieme dei cluster.
@@ -12,6 +20,91 @@ import java.io.Serializable;
  * @author Alessandro Ferrulli, Nazim Elmadhi.
  */
 public class ClusterSet implements Serializable {
+    /**
+     * Versione della forma serializzata, uguale a quella dei file già salvati.
+     */
+    private static final long serialVersionUID = -8716297812973362314L;
+
+    /**
+     * Classe che registra gli spostamenti di tuple tra cluster avvenuti durante l'assegnazione di un blocco di tuple.
+     */
+    static class Moves {
+        /**
+         * Indici delle tuple spostate.
+         */
+        private int[] ids = new int[16];
+        /**
+         * Cluster di provenienza di ogni tupla spostata, -1 se la tupla non era assegnata.
+         */
+        private int[] previous = new int[16];
+        /**
+         * Numero di spostamenti registrati.
+         */
+        private int size;
+        /**
+         * Numero di distanze tra tuple e centroidi calcolate durante l'assegnazione del blocco.
+         */
+        private long distances;
+
+        /**
+         * Registra lo spostamento di una tupla.
+         *
+         * @param id indice della tupla.
+         * @param previousCluster cluster di provenienza, -1 se la tupla non era assegnata.
+         */
+        void add(int id, int previousCluster){
+            if(size == ids.length){
+                ids = Arrays.copyOf(ids, size * 2);
+                previous = Arrays.copyOf(previous, size * 2);
+            }
+            ids[size] = id;
+            previous[size] = previousCluster;
+            size++;
+        }
+
+        /**
+         * Restituisce il numero di spostamenti registrati.
+         *
+         * @return numero di tuple spostate.
+         */
+        int size(){
+            return size;
+        }
+
+        /**
+         * Aggiunge al conteggio delle distanze calcolate.
+         *
+         * @param count numero di distanze calcolate.
+         */
+        void countDistances(long count){
+            distances += count;
+        }
+
+        /**
+         * Restituisce il numero di distanze tra tuple e centroidi calcolate durante l'assegnazione del blocco.
+         *
+         * @return numero di distanze calcolate.
+         */
+        long getDistances(){
+            return distances;
+        }
+    }
+
+    /**
+     * Numero massimo di blocchi di tuple in cui si raccolgono statistiche parziali durante l'aggiornamento dei centroidi.
+     */
+    static final int STATISTICS_PARTS = 32;
+
+    /**
+     * Numero di tuple di un riquadro dell'assegnazione con la Vector API.
+     */
+    static final int TILE_ROWS = 256;
+
+    /**
+     * Numero di centroidi di un riquadro dell'assegnazione con la Vector API.
+     */
+    static final int TILE_CENTROIDS = 4;
+
     /**
      * Array di cluster.
      */
@@ -20,6 +113,23 @@ public class ClusterSet implements Serializable {
      * Indice d'inserimento.
      */
     private int i = 0;
+    /**
+     * Indice del cluster a cui è assegnata ogni transazione, -1 se la transazione non è ancora assegnata.
+     * Non viene salvato: ricavabile dagli indici delle tuple di ogni cluster.
+     */
+    private transient int[] assignment;
+
+    /**
+     * Indica se l'assegnazione delle tuple calcola le distanze di un blocco di tuple alla volta con la Vector API.
+     */
+    private transient boolean vectorized;
+
+    /**
+     * Distanza di ogni tupla dal centroide del proprio cluster al termine di K-means, {@code null} se non calcolata.
+     * Non viene salvata, perché vale solo per il dataset su cui è stata calcolata: un insieme di cluster caricato da
+     * file ricalcola le distanze sul dataset in uso.
+     */
+    private transient double[] distances;
 
     /**
      * Costruttore parametrizzato.
@@ -50,6 +160,15 @@ public class ClusterSet implements Serializable {
         return C[i];
     }
 
+    /**
+     * Restituisce il numero di cluster.
+     *
+     * @return numero di cluster.
+     */
+    int getNumberOfClusters(){
+        return C.length;
+    }
+
     /**
      * Inizializza i centroidi.
      *
@@ -58,29 +177,96 @@ public class ClusterSet implements Serializable {
      * @throws OutofRangeSampleSize se il numero di cluster è maggiore del numero di tuple del dataset.
      */
     void initializeCentroids(Data data) throws OutofRangeSampleSize {
-        int[] centroidIndexes = data.sampling(C.length);
+        initializeCentroids(data, data.sampling(C.length));
+    }
+
+    /**
+     * Inizializza i centroidi nel modo indicato.
+     *
+     * @param data dataset sul quale inizializzare i centroidi.
+     * @param seeding modo in cui scegliere i centroidi iniziali.
+     * @param rounds numero di turni di estrazione di k-means||.
+     * @param oversampling numero medio di candidate estratte per turno da k-means||, in rapporto al numero di cluster.
+     * @param random generatore di numeri casuali.
+     * @param executor esecutore dei blocchi di tuple.
+     *
+     * @throws OutofRangeSampleSize se il numero di cluster è maggiore del numero di tuple del dataset.
+     */
+    void initializeCentroids(Data data, SEEDING_TYPE seeding, int rounds, double oversampling, Random random,
+                             ChunkExecutor executor) throws OutofRangeSampleSize {
+        initializeCentroids(data, CentroidSeeding.centroidIndexes(data, C.length, seeding, rounds, oversampling, random, executor));
+    }
+
+    /**
+     * Inizializza i centroidi con le transazioni in input.
+     *
+     * @param data dataset sul quale inizializzare i centroidi.
+     * @param centroidIndexes indici delle transazioni scelte come centroidi iniziali.
+     */
+    void initializeCentroids(Data data, int[] centroidIndexes){
         for(int i : centroidIndexes)
         {
             Tuple centroidI = data.getItemSet(i);
             add(new Cluster(centroidI));
         }
+        assignment = new int[data.getNumberOfExamples()];
+        Arrays.fill(assignment, -1);
     }
 
     /**
-     * Restituisce il cluster più vicino alla tupla.
+     * Inizializza i centroidi con i centroidi di un altro insieme di cluster con lo stesso schema,
+     * ricodificati sul dataset in input.
      *
-     * @param tuple tupla.
+     * @param data dataset sul quale inizializzare i centroidi.
+     * @param previous insieme di cluster da cui copiare i centroidi.
      *
-     * @return cluster più vicino alla tupla.
+     * @throws IllegalArgumentException se i centroidi non hanno lo schema del dataset.
      */
-    Cluster nearestCluster(Tuple tuple){
-        Cluster nearestCluster = null;
-        double minDistance = Double.MAX_VALUE;
+    void initializeCentroids(Data data, ClusterSet previous){
+        for(int c = 0; c < previous.getNumberOfClusters(); c++)
+            add(new Cluster(data.getItemSet(previous.get(c).getCentroid())));
+        assignment = new int[data.getNumberOfExamples()];
+        Arrays.fill(assignment, -1);
+    }
+
+    /**
+     * Ricodifica sul dataset in input i centroidi che sono stati codificati con un altro dataset, come quelli di un
+     * insieme di cluster caricato da file; gli altri centroidi restano invariati.
+     *
+     * @param data dataset con cui codificare i centroidi.
+     *
+     * @throws IllegalArgumentException se i centroidi non hanno lo schema del dataset.
+     */
+    void encodeCentroids(Data data){
+        for(Cluster cluster : C)
+            if(cluster != null && !data.isEncoded(cluster.getCentroid()))
+                cluster.setCentroid(data.getItemSet(cluster.getCentroid()));
+    }
+
+    /**
+     * Restituisce l'indice del cluster più vicino alla transazione d'indice id, senza allocare la tupla della transazione.
+     * Si parte dal cluster a cui la transazione è già assegnata, che di solito resta il più vicino, e il calcolo della
+     * distanza da ogni altro centroide s'interrompe appena supera quella dal centroide più vicino trovato finora.
+     * A parità di distanza prevale il cluster d'indice minore; poiché le distanze con soglia sommano gli attributi in
+     * un altro ordine, sono considerate pari le distanze che differiscono meno di {@link Data#ABANDON_TOLERANCE}.
+     *
+     * @param data dataset.
+     * @param id indice della transazione.
+     *
+     * @return indice del cluster più vicino alla transazione.
+     */
+    int nearestCluster(Data data, int id){
+        int first = assignment != null && assignment[id] >= 0 ? assignment[id] : 0;
+        int nearestCluster = first;
+        double minDistance = data.distance(id, C[first].getCentroid());
         for(int i = 0; i < C.length; i++){
-            double distance = tuple.getDistance(C[i].getCentroid());
-            if(distance < minDistance){
+            if(i == first)
+                continue;
+            double distance = data.distance(id, C[i].getCentroid(), minDistance);
+            double tolerance = minDistance * Data.ABANDON_TOLERANCE;
+            if(distance < minDistance - tolerance || (distance <= minDistance + tolerance && i < nearestCluster)){
                 minDistance = distance;
-                nearestCluster = C[i];
+                nearestCluster = i;
             }
         }
         return nearestCluster;
@@ -92,23 +278,257 @@ public class ClusterSet implements Serializable {
      *
      * @param d indice della tupla.
      *
-     * @return cluster che contiene la tupla.
+     * @return cluster che contiene la tupla, {@code null} se la tupla non è ancora assegnata.
      */
     Cluster currentCluster(int d){
-        for(Cluster c : C)
-            if(c.contain(d))
-                return c;
-        return null;
+        return assignment[d] < 0 ? null : C[assignment[d]];
     }
 
     /**
-     * Aggiorna i centroidi.
+     * Restituisce l'indice del cluster a cui è assegnata la tupla.
+     *
+     * @param d indice della tupla.
+     *
+     * @return indice del cluster, -1 se la tupla non è ancora assegnata.
+     */
+    int getAssignment(int d){
+        return assignment[d];
+    }
+
+    /**
+     * Assegna una tupla a un cluster.
+     *
+     * @param d indice della tupla.
+     * @param cluster indice del cluster.
+     *
+     * @return {@code true} se la tupla cambia cluster, {@code false} se vi apparteneva già.
+     */
+    boolean assign(int d, int cluster){
+        if(assignment[d] == cluster)
+            return false;
+        assignment[d] = cluster;
+        return true;
+    }
+
+    /**
+     * Imposta il calcolo delle distanze usato dall'assegnazione delle tuple: con la Vector API si calcolano le
+     * distanze di tutto il blocco di tuple da un centroide alla volta, un attributo alla volta; altrimenti si
+     * calcolano le distanze di una tupla alla volta da tutti i centroidi. Il risultato non cambia.
+     *
+     * @param vectorized {@code true} per usare la Vector API, se disponibile.
+     */
+    void setVectorized(boolean vectorized){
+        this.vectorized = vectorized;
+    }
+
+    /**
+     * Assegna al cluster più vicino le tuple con indice compreso tra from (incluso) e to (escluso).
+     * Blocchi disgiunti di tuple possono essere assegnati contemporaneamente da thread diversi.
+     *
+     * @param data dataset.
+     * @param from indice della prima tupla.
+     * @param to indice successivo all'ultima tupla.
+     *
+     * @return spostamenti delle tuple che hanno cambiato cluster.
+     */
+    Moves assign(Data data, int from, int to){
+        if(vectorized)
+            return assignBlock(data, from, to);
+        Moves moves = new Moves();
+        for(int d = from; d < to; d++){
+            int previous = assignment[d];
+            //la tupla passa al nuovo cluster e lascia implicitamente il vecchio
+            if(assign(d, nearestCluster(data, d)))
+                moves.add(d, previous);
+        }
+        moves.countDistances((long) (to - from) * C.length);
+        return moves;
+    }
+
+    /**
+     * Assegna al cluster più vicino le tuple con indice compreso tra from (incluso) e to (escluso), calcolando con la
+     * Vector API le distanze a riquadri: per ogni riquadro di {@link #TILE_ROWS} tuple, che resta nella cache del
+     * processore, si calcolano le distanze da un gruppo di {@link #TILE_CENTROIDS} centroidi alla volta. A parità
+     * di distanza prevale il cluster d'indice minore, come in {@link #nearestCluster(Data, int)}.
+     *
+     * @param data dataset.
+     * @param from indice della prima tupla.
+     * @param to indice successivo all'ultima tupla.
+     *
+     * @return spostamenti delle tuple che hanno cambiato cluster.
+     */
+    private Moves assignBlock(Data data, int from, int to){
+        int tiles = (C.length + TILE_CENTROIDS - 1) / TILE_CENTROIDS;
+        Tuple[][] centroids = new Tuple[tiles][];
+        double[][][] distances = new double[tiles][][];
+        for(int tile = 0; tile < tiles; tile++){
+            int size = Math.min(TILE_CENTROIDS, C.length - tile * TILE_CENTROIDS);
+            centroids[tile] = new Tuple[size];
+            for(int t = 0; t < size; t++)
+                centroids[tile][t] = C[tile * TILE_CENTROIDS + t].getCentroid();
+            distances[tile] = new double[size][TILE_ROWS];
+        }
+
+        Moves moves = new Moves();
+        double[] minDistance = new double[TILE_ROWS];
+        int[] nearest = new int[TILE_ROWS];
+        for(int rowFrom = from; rowFrom < to; rowFrom += TILE_ROWS){
+            int rowTo = Math.min(to, rowFrom + TILE_ROWS);
+            Arrays.fill(minDistance, Double.MAX_VALUE);
+            Arrays.fill(nearest, -1);
+            for(int tile = 0; tile < tiles; tile++){
+                data.distances(rowFrom, rowTo, centroids[tile], distances[tile], true);
+                for(int t = 0; t < centroids[tile].length; t++){
+                    double[] d = distances[tile][t];
+                    for(int x = 0; x < rowTo - rowFrom; x++){
+                        if(d[x] < minDistance[x]){
+                            minDistance[x] = d[x];
+                            nearest[x] = tile * TILE_CENTROIDS + t;
+                        }
+                    }
+                }
+            }
+            for(int d = rowFrom; d < rowTo; d++){
+                int previous = assignment[d];
+                if(assign(d, nearest[d - rowFrom]))
+                    moves.add(d, previous);
+            }
+        }
+        moves.countDistances((long) (to - from) * C.length);
+        return moves;
+    }
+
+    /**
+     * Ricostruisce l'insieme delle tuple di ogni cluster a partire dalle assegnazioni,
+     * con una sola scansione per contare e una per distribuire gli indici.
+     */
+    void updateClusteredData(){
+        int[] sizes = new int[C.length];
+        for(int c : assignment)
+            if(c >= 0)
+                sizes[c]++;
+        int[][] members = new int[C.length][];
+        for(int c = 0; c < C.length; c++)
+            members[c] = new int[sizes[c]];
+        Arrays.fill(sizes, 0);
+        for(int d = 0; d < assignment.length; d++){
+            int c = assignment[d];
+            if(c >= 0)
+                members[c][sizes[c]++] = d;
+        }
+        for(int c = 0; c < C.length; c++)
+            C[c].setClusteredData(members[c]);
+    }
+
+    /**
+     * Aggiorna i centroidi dopo un passo di assegnazione. Alla prima chiamata le statistiche sufficienti dei cluster
+     * vengono calcolate con una scansione completa; in seguito si applicano solo gli spostamenti registrati,
+     * ricalcolando i centroidi dei soli cluster coinvolti.
+     *
+     * @param data dataset.
+     * @param moves spostamenti registrati durante l'assegnazione, nell'ordine dei blocchi di tuple.
+     * @param executor esecutore dei blocchi di tuple.
+     *
+     * @return numero di tuple che hanno cambiato cluster.
+     */
+    int updateCentroids(Data data, List<Moves> moves, ChunkExecutor executor){
+        int moved = 0;
+        for(Moves m : moves)
+            moved += m.size();
+        if(C[0].getStatistics() == null){
+            computeStatistics(data, executor);
+            return moved;
+        }
+
+        boolean[] changed = new boolean[C.length];
+        for(Moves m : moves){
+            for(int t = 0; t < m.size; t++){
+                int id = m.ids[t];
+                if(m.previous[t] >= 0){
+                    C[m.previous[t]].getStatistics().remove(data, id);
+                    changed[m.previous[t]] = true;
+                }
+                C[assignment[id]].getStatistics().add(data, id);
+                changed[assignment[id]] = true;
+            }
+        }
+        for(int c = 0; c < C.length; c++)
+            if(changed[c])
+                C[c].computeCentroid();
+        return moved;
+    }
+
+    /**
+     * Calcola le statistiche sufficienti e i centroidi di tutti i cluster con una sola scansione del dataset,
+     * suddivisa tra i thread dell'esecutore: ogni blocco di tuple raccoglie le statistiche parziali dei cluster,
+     * che vengono poi fuse nell'ordine dei blocchi.
      *
      * @param data dataset.
+     * @param executor esecutore dei blocchi di tuple.
      */
-    void updateCentroids(Data data){
-        for(Cluster c : C)
-            c.computeCentroid(data);
+    void computeStatistics(Data data, ChunkExecutor executor){
+        List<SufficientStatistics[]> partials = executor.mapParts(data.getNumberOfExamples(), STATISTICS_PARTS,
+                (from, to) -> {
+                    SufficientStatistics[] statistics = new SufficientStatistics[C.length];
+                    for(int c = 0; c < C.length; c++)
+                        statistics[c] = new SufficientStatistics(data);
+                    for(int d = from; d < to; d++)
+                        if(assignment[d] >= 0)
+                            statistics[assignment[d]].add(data, d);
+                    return statistics;
+                });
+        SufficientStatistics[] statistics = partials.get(0);
+        for(int part = 1; part < partials.size(); part++)
+            for(int c = 0; c < C.length; c++)
+                statistics[c].merge(partials.get(part)[c]);
+        for(int c = 0; c < C.length; c++)
+            C[c].setStatistics(statistics[c]);
+    }
+
+    /**
+     * Calcola, al termine di K-means, la distanza di ogni tupla dal centroide del proprio cluster e, per ogni cluster,
+     * il numero di tuple, la somma e la somma dei quadrati delle distanze e la distanza massima. Le distanze sono
+     * calcolate in parallelo e conservate, così che la rappresentazione e il salvataggio dei cluster non le
+     * ricalcolino; le statistiche le sommano in ordine di tupla, come la rappresentazione.
+     *
+     * @param data dataset.
+     * @param executor esecutore dei blocchi di tuple.
+     */
+    void computeDistances(Data data, ChunkExecutor executor){
+        double[] distances = new double[data.getNumberOfExamples()];
+        executor.map(distances.length, (from, to) -> {
+            for(int d = from; d < to; d++)
+                distances[d] = assignment[d] < 0 ? Double.NaN : data.distance(d, C[assignment[d]].getCentroid());
+            return null;
+        });
+        int[] sizes = new int[C.length];
+        double[] sums = new double[C.length];
+        double[] squares = new double[C.length];
+        double[] radii = new double[C.length];
+        for(int d = 0; d < distances.length; d++){
+            int c = assignment[d];
+            if(c < 0)
+                continue;
+            sizes[c]++;
+            sums[c] += distances[d];
+            squares[c] += distances[d] * distances[d];
+            radii[c] = Math.max(radii[c], distances[d]);
+        }
+        for(int c = 0; c < C.length; c++)
+            C[c].setDistanceStatistics(sizes[c], sums[c], squares[c], radii[c]);
+        this.distances = distances;
+    }
+
+    /**
+     * Restituisce la somma delle distanze di ogni tupla dal centroide del proprio cluster al termine di K-means.
+     *
+     * @return distanza complessiva.
+     */
+    double getTotalDistance(){
+        double total = 0;
+        for(Cluster cluster : C)
+            total += cluster.getDistanceSum();
+        return total;
     }
 
     /**
@@ -117,10 +537,10 @@ public class ClusterSet implements Serializable {
      * @return stringa che rappresenta l'insieme dei cluster.
      */
     public String toString(){
-        String str = "";
+        StringBuilder str = new StringBuilder();
         for(int i = 0; i < C.length; i++)
-            str += C[i].toString()+"\n";
-        return str;
+            str.append(C[i]).append("\n");
+        return str.toString();
     }
 
     /**
@@ -132,13 +552,33 @@ public class ClusterSet implements Serializable {
      * @return stringa che rappresenta l'insieme dei cluster con le relative tuple che vi appartengono.
      */
     public String toString(Data data) {
-        String str = "";
+        StringWriter str = new StringWriter();
+        try {
+            write(str, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return str.toString();
+    }
+
+    /**
+     * Scrive la rappresentazione dell'insieme dei cluster con le relative tuple che vi appartengono, una tupla alla
+     * volta, così che il testo possa essere inviato mentre viene prodotto senza tenerlo tutto in memoria.
+     *
+     * @param out destinazione del testo.
+     * @param data dataset.
+     *
+     * @throws IOException se la scrittura non riesce.
+     */
+    public void write(Writer out, Data data) throws IOException {
+        double[] stored = distances != null && distances.length == data.getNumberOfExamples() ? distances : null;
         for(int i = 0; i < C.length; i++){
             if (C[i] != null){
-                str += i+":"+C[i].toString(data)+"\n";
+                out.write(i + ":");
+                C[i].write(out, data, stored);
+                out.write("\n");
             }
         }
-        return str;
     }
 
 }
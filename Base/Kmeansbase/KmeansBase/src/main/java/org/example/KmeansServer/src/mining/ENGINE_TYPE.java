@@ -0,0 +1,29 @@
+package mining;
+
+/**
+ * Questa enumerazione rappresenta le strategie con cui K-means assegna le tuple al centroide più vicino.
+ * Tutte producono lo stesso clustering a partire dagli stessi centroidi iniziali.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+public enum ENGINE_TYPE {
+    /**
+     * Rappresenta l'algoritmo di Lloyd, che calcola la distanza di ogni tupla da tutti i centroidi.
+     */
+    LLOYD,
+
+    /**
+     * Rappresenta l'algoritmo di Elkan, che evita i calcoli di distanza esclusi dalla disuguaglianza triangolare.
+     */
+    ELKAN,
+
+    /**
+     * Rappresenta l'algoritmo di Hamerly, che mantiene un solo limite inferiore per tupla.
+     */
+    HAMERLY,
+
+    /**
+     * Rappresenta l'algoritmo Yinyang, che mantiene un limite inferiore per ogni gruppo di centroidi.
+     */
+    YINYANG
+}
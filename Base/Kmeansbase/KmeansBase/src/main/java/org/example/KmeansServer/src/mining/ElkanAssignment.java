@@ -0,0 +1,111 @@
+package mining;
+
+import data.Data;
+
+/**
+ * Classe che assegna le tuple ai cluster con l'algoritmo di Elkan: per ogni tupla mantiene un limite superiore
+ * alla distanza dal proprio centroide e un limite inferiore alla distanza da ogni altro centroide.
+ * Richiede memoria proporzionale al numero di tuple per il numero di cluster.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+class ElkanAssignment extends BoundedAssignment {
+    /**
+     * Limite inferiore alla distanza di ogni tupla da ogni centroide.
+     */
+    private double[][] lower;
+
+    /**
+     * Alloca i limiti delle tuple e le distanze tra i centroidi.
+     *
+     * @param data dataset.
+     * @param clusters insieme dei cluster.
+     */
+    @Override
+    void initialize(Data data, ClusterSet clusters){
+        super.initialize(data, clusters);
+        lower = new double[data.getNumberOfExamples()][];
+    }
+
+    /**
+     * Assegna al cluster più vicino le tuple con indice compreso tra from (incluso) e to (escluso).
+     * Alla prima iterazione calcola tutte le distanze per inizializzare i limiti; in seguito aggiorna i limiti
+     * con gli spostamenti dei centroidi e calcola solo le distanze che non possono essere escluse.
+     *
+     * @param data dataset.
+     * @param clusters insieme dei cluster.
+     * @param from indice della prima tupla.
+     * @param to indice successivo all'ultima tupla.
+     *
+     * @return spostamenti delle tuple che hanno cambiato cluster.
+     */
+    @Override
+    ClusterSet.Moves assign(Data data, ClusterSet clusters, int from, int to){
+        ClusterSet.Moves moves = new ClusterSet.Moves();
+        long distances = 0;
+        for(int x = from; x < to; x++){
+            int current = clusters.getAssignment(x);
+            int nearest;
+            if(current < 0){
+                lower[x] = new double[centroids.length];
+                nearest = 0;
+                for(int c = 0; c < centroids.length; c++){
+                    lower[x][c] = data.distance(x, centroids[c]);
+                    if(lower[x][c] < lower[x][nearest])
+                        nearest = c;
+                }
+                upper[x] = lower[x][nearest];
+                distances += centroids.length;
+            } else {
+                nearest = current;
+                double[] l = lower[x];
+                for(int c = 0; c < centroids.length; c++)
+                    l[c] = Math.max(0, l[c] - shift[c]);
+                double u = upper[x] + shift[nearest];
+                boolean tight = false;
+                //i limiti tra centroidi valgono solo se la tupla rispetta la disuguaglianza triangolare
+                boolean triangle = !data.hasMissingContinuousValue(x);
+                if(!triangle || !excluded(halfNearest[nearest], u)){
+                    for(int c = 0; c < centroids.length; c++){
+                        if(c == nearest || excluded(l[c], u, triangle, centroidDistances[nearest][c]))
+                            continue;
+                        if(!tight){
+                            u = data.distance(x, centroids[nearest]);
+                            l[nearest] = u;
+                            tight = true;
+                            distances++;
+                            if(excluded(l[c], u, triangle, centroidDistances[nearest][c]))
+                                continue;
+                        }
+                        double d = data.distance(x, centroids[c]);
+                        l[c] = d;
+                        distances++;
+                        if(d < u || (d == u && c < nearest)){
+                            nearest = c;
+                            u = d;
+                        }
+                    }
+                }
+                upper[x] = u;
+            }
+            if(clusters.assign(x, nearest))
+                moves.add(x, current);
+        }
+        moves.countDistances(distances);
+        return moves;
+    }
+
+    /**
+     * Verifica se un centroide è certamente più lontano, di almeno {@link #TOLERANCE}, del centroide assegnato.
+     *
+     * @param lowerBound limite inferiore alla distanza dal centroide.
+     * @param upperBound limite superiore alla distanza dal centroide assegnato.
+     * @param triangle {@code true} se si può usare la distanza tra i due centroidi.
+     * @param centroidDistance distanza tra il centroide e il centroide assegnato.
+     *
+     * @return {@code true} se il calcolo della distanza può essere escluso.
+     */
+    private static boolean excluded(double lowerBound, double upperBound, boolean triangle, double centroidDistance){
+        return excluded(lowerBound, upperBound) || (triangle && excluded(centroidDistance / 2, upperBound));
+    }
+}
@@ -0,0 +1,112 @@
+package mining;
+
+import data.Data;
+
+/**
+ * Classe che assegna le tuple ai cluster con l'algoritmo di Hamerly: per ogni tupla mantiene un limite superiore
+ * alla distanza dal proprio centroide e un solo limite inferiore alla distanza da tutti gli altri centroidi.
+ * Quando i limiti non bastano a confermare l'assegnazione, la tupla viene confrontata con tutti i centroidi.
+ * Richiede memoria proporzionale al numero di tuple.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+class HamerlyAssignment extends BoundedAssignment {
+    /**
+     * Limite inferiore alla distanza di ogni tupla dal centroide più vicino tra quelli a cui non è assegnata.
+     */
+    private double[] lower;
+
+    /**
+     * Indice del centroide con lo spostamento maggiore nell'ultimo aggiornamento.
+     */
+    private int largestShift;
+
+    /**
+     * Spostamento maggiore tra quelli degli altri centroidi, diversi da {@link #largestShift}.
+     */
+    private double secondLargestShift;
+
+    /**
+     * Alloca i limiti delle tuple e le distanze tra i centroidi.
+     *
+     * @param data dataset.
+     * @param clusters insieme dei cluster.
+     */
+    @Override
+    void initialize(Data data, ClusterSet clusters){
+        super.initialize(data, clusters);
+        lower = new double[data.getNumberOfExamples()];
+    }
+
+    /**
+     * Assegna al cluster più vicino le tuple con indice compreso tra from (incluso) e to (escluso).
+     * Alla prima iterazione e quando i limiti non escludono gli altri centroidi, calcola la distanza della tupla
+     * da tutti i centroidi e ne ricava i nuovi limiti.
+     *
+     * @param data dataset.
+     * @param clusters insieme dei cluster.
+     * @param from indice della prima tupla.
+     * @param to indice successivo all'ultima tupla.
+     *
+     * @return spostamenti delle tuple che hanno cambiato cluster.
+     */
+    @Override
+    ClusterSet.Moves assign(Data data, ClusterSet clusters, int from, int to){
+        ClusterSet.Moves moves = new ClusterSet.Moves();
+        long distances = 0;
+        for(int x = from; x < to; x++){
+            int current = clusters.getAssignment(x);
+            int nearest = current;
+            if(current >= 0){
+                upper[x] += shift[current];
+                lower[x] -= current == largestShift ? secondLargestShift : shift[largestShift];
+                //la metà della distanza dal centroide più vicino vale solo se la tupla rispetta la disuguaglianza triangolare
+                double bound = data.hasMissingContinuousValue(x) ? lower[x] : Math.max(lower[x], halfNearest[current]);
+                if(excluded(bound, upper[x]))
+                    continue;
+                upper[x] = data.distance(x, centroids[current]);
+                distances++;
+                if(excluded(bound, upper[x]))
+                    continue;
+            }
+
+            double nearestDistance = Double.POSITIVE_INFINITY;
+            double secondDistance = Double.POSITIVE_INFINITY;
+            for(int c = 0; c < centroids.length; c++){
+                double d = c == current ? upper[x] : data.distance(x, centroids[c]);
+                if(d < nearestDistance){
+                    secondDistance = nearestDistance;
+                    nearestDistance = d;
+                    nearest = c;
+                } else if(d < secondDistance){
+                    secondDistance = d;
+                }
+            }
+            distances += current >= 0 ? centroids.length - 1 : centroids.length;
+            upper[x] = nearestDistance;
+            lower[x] = secondDistance;
+            if(clusters.assign(x, nearest))
+                moves.add(x, current);
+        }
+        moves.countDistances(distances);
+        return moves;
+    }
+
+    /**
+     * Calcola lo spostamento di ogni centroide, le distanze tra i centroidi aggiornati e i due spostamenti maggiori.
+     *
+     * @param clusters insieme dei cluster.
+     */
+    @Override
+    void centroidsUpdated(ClusterSet clusters){
+        super.centroidsUpdated(clusters);
+        largestShift = 0;
+        for(int c = 1; c < shift.length; c++)
+            if(shift[c] > shift[largestShift])
+                largestShift = c;
+        secondLargestShift = 0;
+        for(int c = 0; c < shift.length; c++)
+            if(c != largestShift)
+                secondLargestShift = Math.max(secondLargestShift, shift[c]);
+    }
+}
@@ -2,8 +2,21 @@ package mining;
 
 import data.Data;
 import data.OutofRangeSampleSize;
+import data.RunningCentroid;
+import data.Tuple;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
 
 /**
  * Classe per l'esecuzione dell'algoritmo di clustering K-means.
@@ -16,6 +29,137 @@ public class KmeansMiner {
      */
     private ClusterSet C;
 
+    /**
+     * Numero di thread usati per l'assegnazione delle tuple ai cluster e per l'aggiornamento dei centroidi.
+     */
+    private int parallelism = 1;
+
+    /**
+     * Strategia di assegnazione delle tuple ai cluster.
+     */
+    private ENGINE_TYPE engine = ENGINE_TYPE.LLOYD;
+
+    /**
+     * Modo in cui sono scelti i centroidi iniziali.
+     */
+    private SEEDING_TYPE seeding = SEEDING_TYPE.RANDOM;
+
+    /**
+     * Seme del generatore di numeri casuali usato per scegliere i centroidi iniziali: a parità di seme e di
+     * parametri, K-means produce sempre lo stesso clustering.
+     */
+    private long seed = new Random().nextLong();
+
+    /**
+     * Numero di turni di estrazione delle candidate di k-means||.
+     */
+    private int seedingRounds = 5;
+
+    /**
+     * Numero medio di candidate estratte per turno da k-means||, in rapporto al numero di cluster.
+     */
+    private double oversampling = 2;
+
+    /**
+     * Numero massimo d'iterazioni della versione mini-batch quando non è indicato un limite.
+     */
+    static final int MINI_BATCH_ITERATIONS = 100;
+
+    /**
+     * Numero di tuple estratte a ogni iterazione della versione mini-batch, 0 per la versione che assegna
+     * tutte le tuple a ogni iterazione.
+     */
+    private int batchSize = 0;
+
+    /**
+     * Numero massimo d'iterazioni, 0 per il limite predefinito: nessun limite per la versione che assegna tutte
+     * le tuple, {@link #MINI_BATCH_ITERATIONS} per la versione mini-batch.
+     */
+    private int maxIterations = 0;
+
+    /**
+     * Spostamento massimo di un centroide in un'iterazione al di sotto del quale K-means si arresta,
+     * 0 per arrestarsi solo quando i centroidi non si spostano, a meno degli arrotondamenti.
+     */
+    private double tolerance = 0;
+
+    /**
+     * Frazione delle tuple spostate in un'iterazione al di sotto della quale la versione che assegna tutte le tuple
+     * si arresta, 0 per arrestarsi solo quando nessuna tupla cambia cluster.
+     */
+    private double minMovedFraction = 0;
+
+    /**
+     * Indica se l'assegnazione di tutte le tuple usa la Vector API; per default la usa se disponibile.
+     */
+    private boolean vectorized = Data.isVectorApiAvailable();
+
+    /**
+     * Numero di tuple che hanno cambiato cluster in ogni iterazione dell'ultima esecuzione di K-means.
+     */
+    private final List<Integer> movedRows = new ArrayList<>();
+
+    /**
+     * Numero di esecuzioni indipendenti di K-means, con centroidi iniziali diversi, tra cui scegliere la migliore.
+     */
+    private int restarts = 1;
+
+    /**
+     * Numero d'iterazioni eseguite dalle esecuzioni ancora in gara tra un confronto e il successivo.
+     */
+    static final int RACE_ITERATIONS = 3;
+
+    /**
+     * Margine relativo oltre la distanza complessiva migliore per cui un'esecuzione viene interrotta al confronto.
+     */
+    static final double RACE_MARGIN = 0.1;
+
+    /**
+     * Spostamento di un centroide dovuto ai soli arrotondamenti: le statistiche aggiornate tupla per tupla e quelle
+     * ricalcolate da zero sulle stesse tuple danno centroidi che differiscono di qualche unità sull'ultima cifra.
+     */
+    static final double ROUNDING_SHIFT = 1e-12;
+
+    /**
+     * Indice dell'esecuzione scelta nell'ultima esecuzione di K-means.
+     */
+    private int bestRestart;
+
+    /**
+     * Numero di esecuzioni interrotte perché distanti dalla migliore nell'ultima esecuzione di K-means.
+     */
+    private int stoppedRestarts;
+
+    /**
+     * Somma delle distanze di ogni tupla dal centroide del proprio cluster al termine dell'ultima esecuzione di K-means.
+     */
+    private double totalDistance;
+
+    /**
+     * Indici di qualità del clustering calcolato dall'ultima esecuzione di K-means.
+     */
+    private ClusterMetrics metrics;
+
+    /**
+     * Durata, in millisecondi, della scelta dei centroidi iniziali nell'ultima esecuzione di K-means.
+     */
+    private long seedingTime;
+
+    /**
+     * Durata complessiva, in millisecondi, dell'ultima esecuzione di K-means.
+     */
+    private long clusteringTime;
+
+    /**
+     * Numero di distanze tra tuple e centroidi calcolate dall'ultima esecuzione di K-means.
+     */
+    private long distanceComputations;
+
+    /**
+     * Numero di distanze che l'algoritmo di Lloyd avrebbe calcolato nelle stesse iterazioni.
+     */
+    private long lloydDistanceComputations;
+
     /**
      * Costruttore che inizializza l'insieme dei cluster.
      *
@@ -75,6 +219,19 @@ public class KmeansMiner {
         }
     }
 
+    /**
+     * Ricodifica i centroidi caricati da file con la normalizzazione e i dizionari del dataset in input, così che
+     * possano essere confrontati con le sue tuple. Va invocato dopo {@link #KmeansMiner(String)} e prima di usare
+     * l'insieme dei cluster su un dataset.
+     *
+     * @param data dataset con cui codificare i centroidi.
+     *
+     * @throws IllegalArgumentException se i centroidi non hanno lo schema del dataset.
+     */
+    public void encodeCentroids(Data data){
+        C.encodeCentroids(data);
+    }
+
     /**
      * Restituisce l'insieme dei cluster.
      * @return l'insieme dei cluster.
@@ -84,7 +241,250 @@ public class KmeansMiner {
     }
 
     /**
-     * Esegue l'algoritmo di clustering K-means.
+     * Imposta il numero di thread usati per l'assegnazione delle tuple ai cluster e per l'aggiornamento dei centroidi.
+     * Il risultato del clustering non dipende dal numero di thread.
+     *
+     * @param parallelism numero di thread, almeno 1; 1 per l'esecuzione sequenziale.
+     */
+    public void setParallelism(int parallelism){
+        if(parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Imposta la strategia di assegnazione delle tuple ai cluster.
+     * Il risultato del clustering non dipende dalla strategia.
+     *
+     * @param engine strategia di assegnazione.
+     */
+    public void setEngine(ENGINE_TYPE engine){
+        this.engine = engine;
+    }
+
+    /**
+     * Imposta il modo in cui sono scelti i centroidi iniziali.
+     *
+     * @param seeding modo di scelta dei centroidi iniziali.
+     */
+    public void setSeeding(SEEDING_TYPE seeding){
+        this.seeding = seeding;
+    }
+
+    /**
+     * Imposta il seme del generatore di numeri casuali usato per scegliere i centroidi iniziali.
+     *
+     * @param seed seme del generatore.
+     */
+    public void setSeed(long seed){
+        this.seed = seed;
+    }
+
+    /**
+     * Restituisce il seme del generatore di numeri casuali usato per scegliere i centroidi iniziali,
+     * con cui ripetere lo stesso clustering.
+     *
+     * @return seme del generatore.
+     */
+    public long getSeed(){
+        return seed;
+    }
+
+    /**
+     * Imposta il numero di turni di estrazione delle candidate di k-means||.
+     *
+     * @param seedingRounds numero di turni, almeno 1.
+     */
+    public void setSeedingRounds(int seedingRounds){
+        if(seedingRounds < 1)
+            throw new IllegalArgumentException("Seeding rounds must be at least 1");
+        this.seedingRounds = seedingRounds;
+    }
+
+    /**
+     * Imposta il numero medio di candidate estratte per turno da k-means||, in rapporto al numero di cluster.
+     *
+     * @param oversampling fattore di sovracampionamento, positivo.
+     */
+    public void setOversampling(double oversampling){
+        if(!(oversampling > 0))
+            throw new IllegalArgumentException("Oversampling factor must be positive");
+        this.oversampling = oversampling;
+    }
+
+    /**
+     * Imposta il numero di tuple estratte a ogni iterazione: con un valore positivo K-means esegue la versione
+     * mini-batch, che a ogni iterazione assegna solo le tuple estratte e vi sposta i centroidi con un tasso di
+     * apprendimento proprio di ogni centroide, e al termine assegna tutte le tuple ai centroidi ottenuti.
+     *
+     * @param batchSize numero di tuple per iterazione, non negativo; 0 per assegnare tutte le tuple a ogni iterazione.
+     */
+    public void setBatchSize(int batchSize){
+        if(batchSize < 0)
+            throw new IllegalArgumentException("Batch size must not be negative");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imposta il numero massimo d'iterazioni.
+     *
+     * @param maxIterations numero massimo d'iterazioni, non negativo; 0 per il limite predefinito.
+     */
+    public void setMaxIterations(int maxIterations){
+        if(maxIterations < 0)
+            throw new IllegalArgumentException("Maximum number of iterations must not be negative");
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Imposta lo spostamento massimo di un centroide in un'iterazione al di sotto del quale K-means si arresta.
+     *
+     * @param tolerance spostamento massimo, non negativo; 0 per arrestarsi solo quando i centroidi non si spostano,
+     *                  a meno degli arrotondamenti.
+     */
+    public void setTolerance(double tolerance){
+        if(!(tolerance >= 0))
+            throw new IllegalArgumentException("Tolerance must not be negative");
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Imposta la frazione delle tuple spostate in un'iterazione al di sotto della quale la versione che assegna
+     * tutte le tuple si arresta, senza attendere che nessuna tupla cambi cluster.
+     *
+     * @param minMovedFraction frazione delle tuple, tra 0 e 1; 0 per arrestarsi solo quando nessuna tupla cambia cluster.
+     */
+    public void setMinMovedFraction(double minMovedFraction){
+        if(!(minMovedFraction >= 0 && minMovedFraction <= 1))
+            throw new IllegalArgumentException("Moved fraction must be between 0 and 1");
+        this.minMovedFraction = minMovedFraction;
+    }
+
+    /**
+     * Attiva o disattiva la Vector API nell'assegnazione di tutte le tuple con l'algoritmo di Lloyd e nell'assegnazione
+     * finale della versione mini-batch. Senza il modulo {@code jdk.incubator.vector} le distanze sono calcolate con
+     * lo stesso ordine di accesso ma senza istruzioni vettoriali. Il risultato del clustering non cambia.
+     *
+     * @param vectorized {@code true} per usare la Vector API.
+     */
+    public void setVectorized(boolean vectorized){
+        this.vectorized = vectorized;
+    }
+
+    /**
+     * Restituisce il numero di tuple che hanno cambiato cluster in ogni iterazione dell'ultima esecuzione della
+     * versione che assegna tutte le tuple; alla prima iterazione sono contate tutte le tuple.
+     *
+     * @return numero di tuple spostate per iterazione, vuoto per la versione mini-batch.
+     */
+    public List<Integer> getMovedRows(){
+        return Collections.unmodifiableList(movedRows);
+    }
+
+    /**
+     * Imposta il numero di esecuzioni indipendenti di K-means tra cui scegliere quella con la minore distanza
+     * complessiva delle tuple dai centroidi. L'esecuzione r sceglie i centroidi iniziali con il seme seed + r, così
+     * che la migliore si possa ripetere da sola. Le esecuzioni procedono in parallelo sullo stesso dataset, a gruppi
+     * di {@link #RACE_ITERATIONS} iterazioni: dopo ogni gruppo, quelle la cui distanza complessiva supera la migliore
+     * di oltre {@link #RACE_MARGIN} vengono interrotte. Vale per la versione che assegna tutte le tuple.
+     *
+     * @param restarts numero di esecuzioni, almeno 1.
+     */
+    public void setRestarts(int restarts){
+        if(restarts < 1)
+            throw new IllegalArgumentException("Restarts must be at least 1");
+        this.restarts = restarts;
+    }
+
+    /**
+     * Restituisce il numero di esecuzioni indipendenti di K-means tra cui scegliere la migliore.
+     *
+     * @return numero di esecuzioni.
+     */
+    public int getRestarts(){
+        return restarts;
+    }
+
+    /**
+     * Restituisce l'indice dell'esecuzione scelta tra quelle indipendenti dell'ultima esecuzione di K-means:
+     * il seme che la ripete da sola è {@link #getSeed()} più l'indice.
+     *
+     * @return indice dell'esecuzione scelta, 0 se è stata eseguita una sola esecuzione.
+     */
+    public int getBestRestart(){
+        return bestRestart;
+    }
+
+    /**
+     * Restituisce il numero di esecuzioni interrotte perché distanti dalla migliore nell'ultima esecuzione di K-means.
+     *
+     * @return numero di esecuzioni interrotte.
+     */
+    public int getStoppedRestarts(){
+        return stoppedRestarts;
+    }
+
+    /**
+     * Restituisce la somma delle distanze di ogni tupla dal centroide del proprio cluster al termine dell'ultima
+     * esecuzione di K-means.
+     *
+     * @return distanza complessiva.
+     */
+    public double getTotalDistance(){
+        return totalDistance;
+    }
+
+    /**
+     * Restituisce gli indici di qualità del clustering calcolato dall'ultima esecuzione di K-means.
+     *
+     * @return indici di qualità, {@code null} se il clustering è stato caricato da file.
+     */
+    public ClusterMetrics getMetrics(){
+        return metrics;
+    }
+
+    /**
+     * Restituisce la durata complessiva, scelta dei centroidi iniziali compresa, dell'ultima esecuzione di K-means.
+     *
+     * @return durata in millisecondi.
+     */
+    public long getClusteringTime(){
+        return clusteringTime;
+    }
+
+    /**
+     * Restituisce la durata della scelta dei centroidi iniziali nell'ultima esecuzione di K-means.
+     *
+     * @return durata in millisecondi.
+     */
+    public long getSeedingTime(){
+        return seedingTime;
+    }
+
+    /**
+     * Restituisce il numero di distanze tra tuple e centroidi calcolate dall'ultima esecuzione di K-means.
+     *
+     * @return numero di distanze calcolate.
+     */
+    public long getDistanceComputations(){
+        return distanceComputations;
+    }
+
+    /**
+     * Restituisce la frazione dei calcoli di distanza evitati dalla strategia di assegnazione, nell'ultima
+     * esecuzione di K-means, rispetto all'algoritmo di Lloyd.
+     *
+     * @return frazione dei calcoli di distanza evitati, tra 0 e 1.
+     */
+    public double getSkippedDistanceFraction(){
+        if(lloydDistanceComputations == 0)
+            return 0;
+        return 1 - (double) distanceComputations / lloydDistanceComputations;
+    }
+
+    /**
+     * Esegue l'algoritmo di clustering K-means. Con più esecuzioni indipendenti (vedi {@link #setRestarts(int)})
+     * conserva quella con la minore distanza complessiva e ne restituisce il numero d'iterazioni.
      * @param data insieme di dati.
      *
      * @return il numero d'iterazioni eseguite.
@@ -92,31 +492,460 @@ public class KmeansMiner {
      * @throws OutofRangeSampleSize se il numero di cluster è maggiore del numero di tuple.
      */
     public int kmeans(Data data) throws OutofRangeSampleSize {
+        try(ChunkExecutor executor = new ChunkExecutor(parallelism)){
+            if(restarts > 1 && batchSize == 0)
+                return race(data, executor);
+            //STEP 1
+            long start = System.currentTimeMillis();
+            Random random = new Random(seed);
+            C.initializeCentroids(data, seeding, seedingRounds, oversampling, random, executor);
+            C.setVectorized(vectorized);
+            seedingTime = System.currentTimeMillis() - start;
+            int numberOfIterations = batchSize > 0 ? miniBatch(data, random, executor) : iterate(data, executor);
+            clusteringTime = System.currentTimeMillis() - start;
+            return numberOfIterations;
+        }
+    }
+
+    /**
+     * Esegue l'algoritmo di clustering K-means a partire dai centroidi dell'insieme di cluster corrente, ad esempio
+     * caricato da file, ricodificati sul dataset in input. Su un dataset poco diverso da quello su cui sono stati
+     * calcolati, i centroidi sono già vicini alla convergenza e servono poche iterazioni.
+     *
+     * @param data insieme di dati.
+     *
+     * @return il numero d'iterazioni eseguite.
+     *
+     * @throws IllegalArgumentException se i centroidi non hanno lo schema del dataset.
+     */
+    public int warmStart(Data data){
+        try(ChunkExecutor executor = new ChunkExecutor(parallelism)){
+            long start = System.currentTimeMillis();
+            ClusterSet previous = C;
+            C = new ClusterSet(previous.getNumberOfClusters());
+            C.initializeCentroids(data, previous);
+            C.setVectorized(vectorized);
+            seedingTime = System.currentTimeMillis() - start;
+            int numberOfIterations = batchSize > 0 ? miniBatch(data, new Random(seed), executor) : iterate(data, executor);
+            clusteringTime = System.currentTimeMillis() - start;
+            return numberOfIterations;
+        }
+    }
+
+    /**
+     * Esegue la versione mini-batch di K-means a partire dai centroidi già inizializzati. A ogni iterazione estrae
+     * {@link #batchSize} tuple con reinserimento, le assegna in parallelo al centroide più vicino e sposta ogni
+     * centroide verso le tuple assegnate, nell'ordine di estrazione, con tasso di apprendimento pari all'inverso del
+     * numero di tuple che ha ricevuto. Si arresta dopo il numero massimo d'iterazioni o quando nessun centroide si
+     * sposta più di {@link #tolerance}; infine assegna tutte le tuple ai centroidi ottenuti.
+     *
+     * @param data insieme di dati.
+     * @param random generatore di numeri casuali con cui estrarre le tuple.
+     * @param executor esecutore dei blocchi di tuple.
+     *
+     * @return il numero d'iterazioni eseguite.
+     */
+    private int miniBatch(Data data, Random random, ChunkExecutor executor){
+        int k = C.getNumberOfClusters();
+        int limit = maxIterations > 0 ? maxIterations : MINI_BATCH_ITERATIONS;
+        RunningCentroid[] centroids = new RunningCentroid[k];
+        for(int c = 0; c < k; c++)
+            centroids[c] = new RunningCentroid(data, C.get(c).getCentroid());
+        distanceComputations = 0;
+        movedRows.clear();
+
         int numberOfIterations = 0;
-        //STEP 1
-        C.initializeCentroids(data);
-        boolean changedCluster = false;
+        double largestShift;
         do{
             numberOfIterations++;
-            //STEP 2
-            changedCluster = false;
-            for(int i = 0; i < data.getNumberOfExamples(); i++){
-                Cluster nearestCluster = C.nearestCluster(data.getItemSet(i));
-                Cluster oldCluster = C.currentCluster(i);
-                boolean currentChange = nearestCluster.addData(i);
-                if(currentChange)
-                    changedCluster = true;
-                //rimuovo la tupla dal vecchio cluster
-                if(currentChange && oldCluster != null)
-                    //il nodo va rimosso dal suo vecchio cluster
-                    oldCluster.removeTuple(i);
-            }
-            //STEP 3
-            C.updateCentroids(data);
+            int[] batch = new int[batchSize];
+            for(int i = 0; i < batchSize; i++)
+                batch[i] = random.nextInt(data.getNumberOfExamples());
+            List<int[]> nearest = executor.map(batchSize, (from, to) -> {
+                int[] part = new int[to - from];
+                for(int i = from; i < to; i++)
+                    part[i - from] = C.nearestCluster(data, batch[i]);
+                return part;
+            });
+            distanceComputations += (long) batchSize * k;
+
+            Tuple[] previous = copyCentroids(C);
+            int i = 0;
+            for(int[] part : nearest)
+                for(int c : part)
+                    centroids[c].add(data, batch[i++]);
+            largestShift = largestShift(C, previous);
         }
-        while(changedCluster);
+        while(numberOfIterations < limit && largestShift > tolerance);
 
+        executor.map(data.getNumberOfExamples(), (from, to) -> C.assign(data, from, to));
+        distanceComputations += (long) data.getNumberOfExamples() * k;
+        lloydDistanceComputations = distanceComputations;
+        C.computeDistances(data, executor);
+        totalDistance = C.getTotalDistance();
+        metrics = new ClusterMetrics(data, C, executor, vectorized);
+        bestRestart = 0;
+        stoppedRestarts = 0;
+        C.updateClusteredData();
         return numberOfIterations;
     }
 
+    /**
+     * Esegue le iterazioni di K-means a partire dai centroidi già inizializzati, fino a quando nessuna tupla cambia
+     * cluster o, se indicati, fino al numero massimo d'iterazioni, a un'iterazione che sposta meno di
+     * {@link #minMovedFraction} delle tuple o a un'iterazione in cui nessun centroide si sposta più di {@link #tolerance}.
+     *
+     * @param data insieme di dati.
+     * @param executor esecutore dei blocchi di tuple.
+     *
+     * @return il numero d'iterazioni eseguite.
+     */
+    int iterate(Data data, ChunkExecutor executor){
+        Run run = new Run(data, C);
+        run.iterate(data, executor, Integer.MAX_VALUE);
+        finish(data, run, executor);
+        distanceComputations = run.distanceComputations;
+        lloydDistanceComputations = run.lloydDistanceComputations(data);
+        bestRestart = 0;
+        stoppedRestarts = 0;
+        return run.numberOfIterations;
+    }
+
+    /**
+     * Esegue {@link #restarts} esecuzioni indipendenti di K-means e conserva quella con la minore distanza complessiva
+     * delle tuple dai centroidi, interrompendo a ogni confronto quelle che superano la migliore di oltre
+     * {@link #RACE_MARGIN}. I confronti avvengono dopo lo stesso numero d'iterazioni di ogni esecuzione, così che
+     * la scelta non dipenda dal grado di parallelismo.
+     *
+     * @param data insieme di dati.
+     * @param executor esecutore dei blocchi di tuple, condiviso dalle esecuzioni.
+     *
+     * @return il numero d'iterazioni dell'esecuzione scelta.
+     *
+     * @throws OutofRangeSampleSize se il numero di cluster è maggiore del numero di tuple.
+     */
+    private int race(Data data, ChunkExecutor executor) throws OutofRangeSampleSize {
+        int k = C.getNumberOfClusters();
+        if(k <= 0 || k > data.getNumberOfExamples())
+            throw new OutofRangeSampleSize("invalid k value");
+        long start = System.currentTimeMillis();
+        Run[] runs = new Run[restarts];
+        double[] totals = new double[restarts];
+        List<Integer> racing = new ArrayList<>();
+        for(int r = 0; r < restarts; r++)
+            racing.add(r);
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(restarts, parallelism));
+        try {
+            runAll(pool, racing, r -> {
+                ClusterSet clusters = new ClusterSet(k);
+                try {
+                    clusters.initializeCentroids(data, seeding, seedingRounds, oversampling, new Random(seed + r), executor);
+                } catch (OutofRangeSampleSize e) {
+                    throw new IllegalStateException(e.getMessage());
+                }
+                clusters.setVectorized(vectorized);
+                runs[r] = new Run(data, clusters);
+            });
+            seedingTime = System.currentTimeMillis() - start;
+
+            List<Integer> running = new ArrayList<>(racing);
+            while(!running.isEmpty()){
+                runAll(pool, running, r -> {
+                    runs[r].iterate(data, executor, RACE_ITERATIONS);
+                    totals[r] = totalDistance(data, runs[r].clusters, executor);
+                });
+                double best = Double.POSITIVE_INFINITY;
+                for(int r : racing)
+                    best = Math.min(best, totals[r]);
+                double limit = best + best * RACE_MARGIN;
+                racing.removeIf(r -> totals[r] > limit);
+                running.clear();
+                for(int r : racing)
+                    if(!runs[r].converged)
+                        running.add(r);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        bestRestart = racing.get(0);
+        for(int r : racing)
+            if(totals[r] < totals[bestRestart])
+                bestRestart = r;
+        stoppedRestarts = restarts - racing.size();
+        distanceComputations = 0;
+        lloydDistanceComputations = 0;
+        for(Run run : runs){
+            distanceComputations += run.distanceComputations;
+            lloydDistanceComputations += run.lloydDistanceComputations(data);
+        }
+        finish(data, runs[bestRestart], executor);
+        clusteringTime = System.currentTimeMillis() - start;
+        return runs[bestRestart].numberOfIterations;
+    }
+
+    /**
+     * Esegue K-means sullo stesso dataset per ogni numero di cluster da minK a maxK, in parallelo, con la strategia
+     * di assegnazione e i criteri di arresto correnti, e restituisce per ogni k la distanza complessiva, la distanza
+     * media dei cluster, il numero d'iterazioni e gli indici di qualità, senza conservare i cluster. La scelta dei centroidi iniziali
+     * scansiona il dataset una sola volta per maxK: ogni k parte dai primi k centroidi scelti, che con RANDOM e
+     * KMEANS_PLUS_PLUS sono quelli che {@link #kmeans(Data)} sceglierebbe con lo stesso seme. Ogni k esegue una sola
+     * volta la versione che assegna tutte le tuple, qualunque siano le esecuzioni indipendenti e la dimensione dei
+     * mini-batch impostate.
+     *
+     * @param data insieme di dati.
+     * @param minK numero minimo di cluster.
+     * @param maxK numero massimo di cluster.
+     *
+     * @return un risultato per ogni k, in ordine crescente di k.
+     *
+     * @throws OutofRangeSampleSize se minK è minore di 1, maggiore di maxK o se maxK è maggiore del numero di tuple.
+     */
+    public List<SweepPoint> sweep(Data data, int minK, int maxK) throws OutofRangeSampleSize {
+        if(minK <= 0 || minK > maxK || maxK > data.getNumberOfExamples())
+            throw new OutofRangeSampleSize("invalid k value");
+        try(ChunkExecutor executor = new ChunkExecutor(parallelism)){
+            long start = System.currentTimeMillis();
+            int[] centroidIndexes = CentroidSeeding.centroidIndexes(data, maxK, seeding, seedingRounds, oversampling,
+                    new Random(seed), executor);
+            seedingTime = System.currentTimeMillis() - start;
+
+            //i k maggiori, più lenti, partono per primi
+            List<Integer> ks = new ArrayList<>();
+            for(int k = maxK; k >= minK; k--)
+                ks.add(k);
+            SweepPoint[] points = new SweepPoint[ks.size()];
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(ks.size(), parallelism));
+            try {
+                runAll(pool, ks, k -> {
+                    ClusterSet clusters = new ClusterSet(k);
+                    clusters.initializeCentroids(data, Arrays.copyOf(centroidIndexes, k));
+                    clusters.setVectorized(vectorized);
+                    Run run = new Run(data, clusters);
+                    run.iterate(data, executor, Integer.MAX_VALUE);
+
+                    clusters.computeDistances(data, executor);
+                    double average = 0;
+                    int nonEmpty = 0;
+                    for(int c = 0; c < k; c++){
+                        if(clusters.get(c).getSize() > 0){
+                            average += clusters.get(c).getMeanDistance();
+                            nonEmpty++;
+                        }
+                    }
+                    points[k - minK] = new SweepPoint(k, clusters.getTotalDistance(), average / nonEmpty, run.numberOfIterations,
+                            new ClusterMetrics(data, clusters, executor, vectorized));
+                });
+            } finally {
+                pool.shutdown();
+            }
+            clusteringTime = System.currentTimeMillis() - start;
+            return Arrays.asList(points);
+        }
+    }
+
+    /**
+     * Esegue un'elaborazione per ogni esecuzione indicata, in parallelo sui thread del pool, e ne attende il termine.
+     *
+     * @param pool pool di thread delle esecuzioni.
+     * @param restarts indici delle esecuzioni.
+     * @param task elaborazione da eseguire per ogni esecuzione.
+     */
+    private static void runAll(ExecutorService pool, List<Integer> restarts, IntConsumer task){
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for(int r : restarts)
+            tasks.add(() -> {
+                task.accept(r);
+                return null;
+            });
+        try {
+            for(Future<Void> result : pool.invokeAll(tasks))
+                result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel execution interrupted");
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Conserva l'insieme dei cluster di un'esecuzione come risultato di K-means.
+     *
+     * @param data insieme di dati.
+     * @param run esecuzione conclusa.
+     * @param executor esecutore dei blocchi di tuple.
+     */
+    private void finish(Data data, Run run, ChunkExecutor executor){
+        C = run.clusters;
+        movedRows.clear();
+        movedRows.addAll(run.movedRows);
+        C.computeDistances(data, executor);
+        totalDistance = C.getTotalDistance();
+        metrics = new ClusterMetrics(data, C, executor, vectorized);
+        C.updateClusteredData();
+    }
+
+    /**
+     * Calcola la somma delle distanze di ogni tupla dal centroide del cluster a cui è assegnata.
+     *
+     * @param data insieme di dati.
+     * @param clusters insieme dei cluster.
+     * @param executor esecutore dei blocchi di tuple.
+     *
+     * @return distanza complessiva.
+     */
+    private static double totalDistance(Data data, ClusterSet clusters, ChunkExecutor executor){
+        double total = 0;
+        for(double sum : executor.map(data.getNumberOfExamples(), (from, to) -> {
+            double chunk = 0;
+            for(int x = from; x < to; x++)
+                chunk += data.distance(x, clusters.get(clusters.getAssignment(x)).getCentroid());
+            return chunk;
+        }))
+            total += sum;
+        return total;
+    }
+
+    /**
+     * Restituisce una copia dei centroidi di un insieme di cluster.
+     *
+     * @param clusters insieme dei cluster.
+     *
+     * @return copia del centroide di ogni cluster.
+     */
+    private static Tuple[] copyCentroids(ClusterSet clusters){
+        Tuple[] centroids = new Tuple[clusters.getNumberOfClusters()];
+        for(int c = 0; c < centroids.length; c++)
+            centroids[c] = clusters.get(c).getCentroid().copy();
+        return centroids;
+    }
+
+    /**
+     * Restituisce lo spostamento maggiore dei centroidi di un insieme di cluster rispetto a una loro copia precedente.
+     *
+     * @param clusters insieme dei cluster.
+     * @param previous copia precedente dei centroidi.
+     *
+     * @return distanza maggiore tra un centroide e la sua copia.
+     */
+    private static double largestShift(ClusterSet clusters, Tuple[] previous){
+        double largestShift = 0;
+        for(int c = 0; c < previous.length; c++)
+            largestShift = Math.max(largestShift, previous[c].getDistance(clusters.get(c).getCentroid()));
+        return largestShift;
+    }
+
+    /**
+     * Iterazioni di K-means su un insieme di cluster con i centroidi già inizializzati, che possono essere
+     * sospese e riprese.
+     */
+    private class Run {
+        /**
+         * Insieme dei cluster.
+         */
+        private final ClusterSet clusters;
+
+        /**
+         * Strategia di assegnazione delle tuple ai cluster.
+         */
+        private final Assignment assignment;
+
+        /**
+         * Numero d'iterazioni eseguite.
+         */
+        private int numberOfIterations;
+
+        /**
+         * Indica se è stato raggiunto un criterio di arresto.
+         */
+        private boolean converged;
+
+        /**
+         * Numero di distanze tra tuple e centroidi calcolate.
+         */
+        private long distanceComputations;
+
+        /**
+         * Numero di tuple che hanno cambiato cluster in ogni iterazione.
+         */
+        private final List<Integer> movedRows = new ArrayList<>();
+
+        /**
+         * Crea le iterazioni su un insieme di cluster.
+         *
+         * @param data insieme di dati.
+         * @param clusters insieme dei cluster con i centroidi già inizializzati.
+         */
+        Run(Data data, ClusterSet clusters){
+            this.clusters = clusters;
+            assignment = createAssignment();
+            assignment.initialize(data, clusters);
+        }
+
+        /**
+         * Esegue al più iterations iterazioni, fino a quando nessuna tupla cambia cluster o nessun centroide si
+         * sposta più di {@link #tolerance} (o, se è 0, più degli arrotondamenti) o, se indicati, fino al numero massimo d'iterazioni o a un'iterazione che sposta
+         * meno di {@link #minMovedFraction} delle tuple. Così una ripresa da centroidi già convergenti si arresta dopo
+         * la prima iterazione.
+         *
+         * @param data insieme di dati.
+         * @param executor esecutore dei blocchi di tuple.
+         * @param iterations numero massimo d'iterazioni da eseguire.
+         */
+        void iterate(Data data, ChunkExecutor executor, int iterations){
+            int limit = maxIterations > 0 ? maxIterations : Integer.MAX_VALUE;
+            for(int i = 0; i < iterations && !converged; i++){
+                numberOfIterations++;
+                //STEP 2: ogni blocco di tuple viene assegnato in parallelo
+                List<ClusterSet.Moves> moves = executor.map(data.getNumberOfExamples(), (from, to) -> assignment.assign(data, clusters, from, to));
+                for(ClusterSet.Moves m : moves)
+                    distanceComputations += m.getDistances();
+                //STEP 3: i centroidi seguono le sole tuple spostate
+                Tuple[] previous = copyCentroids(clusters);
+                assignment.centroidsUpdating(clusters);
+                int moved = clusters.updateCentroids(data, moves, executor);
+                movedRows.add(moved);
+                if(moved > 0)
+                    assignment.centroidsUpdated(clusters);
+                converged = moved == 0
+                        || (double) moved / data.getNumberOfExamples() < minMovedFraction
+                        || largestShift(clusters, previous) <= Math.max(tolerance, ROUNDING_SHIFT)
+                        || numberOfIterations >= limit;
+            }
+        }
+
+        /**
+         * Restituisce il numero di distanze che l'algoritmo di Lloyd avrebbe calcolato nelle stesse iterazioni.
+         *
+         * @param data insieme di dati.
+         *
+         * @return numero di distanze.
+         */
+        long lloydDistanceComputations(Data data){
+            return (long) numberOfIterations * data.getNumberOfExamples() * clusters.getNumberOfClusters();
+        }
+    }
+
+    /**
+     * Crea la strategia di assegnazione corrispondente a {@link #engine}.
+     *
+     * @return strategia di assegnazione.
+     */
+    private Assignment createAssignment(){
+        switch(engine){
+            case ELKAN:
+                return new ElkanAssignment();
+            case HAMERLY:
+                return new HamerlyAssignment();
+            case YINYANG:
+                return new YinyangAssignment();
+            default:
+                return new LloydAssignment();
+        }
+    }
+
 }
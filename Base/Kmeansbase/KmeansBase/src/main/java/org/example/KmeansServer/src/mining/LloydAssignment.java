@@ -0,0 +1,25 @@
+package mining;
+
+import data.Data;
+
+/**
+ * Classe che assegna ogni tupla al cluster più vicino calcolandone la distanza da tutti i centroidi.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+class LloydAssignment extends Assignment {
+    /**
+     * Assegna al cluster più vicino le tuple con indice compreso tra from (incluso) e to (escluso).
+     *
+     * @param data dataset.
+     * @param clusters insieme dei cluster.
+     * @param from indice della prima tupla.
+     * @param to indice successivo all'ultima tupla.
+     *
+     * @return spostamenti delle tuple che hanno cambiato cluster.
+     */
+    @Override
+    ClusterSet.Moves assign(Data data, ClusterSet clusters, int from, int to){
+        return clusters.assign(data, from, to);
+    }
+}
@@ -0,0 +1,136 @@
+package mining;
+
+import data.Data;
+import data.RunningCentroid;
+import data.Tuple;
+import database.Example;
+
+/**
+ * Classe che aggiorna un insieme di cluster una transazione alla volta, con la versione online di K-means
+ * (MacQueen): ogni nuova transazione viene assegnata al centroide più vicino, che si sposta verso di essa.
+ * Il costo di una transazione è proporzionale al numero di cluster e di attributi e non dipende dal numero di
+ * transazioni già ricevute; le transazioni non vengono memorizzate e i cluster restano interrogabili tra un
+ * aggiornamento e l'altro.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+public class OnlineKmeans {
+    /**
+     * Insieme dei cluster aggiornato.
+     */
+    private final ClusterSet C;
+
+    /**
+     * Dataset di cui le nuove transazioni condividono lo schema e la normalizzazione.
+     */
+    private final Data data;
+
+    /**
+     * Aggiornamento del centroide di ogni cluster.
+     */
+    private final RunningCentroid[] centroids;
+
+    /**
+     * Numero di transazioni ricevute.
+     */
+    private long numberOfExamples;
+
+    /**
+     * Tempo complessivo speso negli aggiornamenti, in nanosecondi.
+     */
+    private long updateTime;
+
+    /**
+     * Crea l'aggiornamento online dei cluster calcolati da K-means sul dataset: ogni centroide parte con il peso
+     * delle transazioni che gli sono assegnate. I centroidi codificati con un altro dataset, come quelli di un
+     * clustering caricato da file, vengono prima ricodificati sul dataset.
+     *
+     * @param kmeans clustering di partenza.
+     * @param data dataset su cui è stato calcolato o ricaricato il clustering.
+     * @param decay frazione del peso dei contributi precedenti persa da un centroide a ogni transazione che riceve,
+     *              tra 0 (incluso) e 1 (escluso); 0 per la media di tutte le transazioni.
+     *
+     * @throws IllegalArgumentException se decay non è compreso tra 0 (incluso) e 1 (escluso) o se i centroidi non
+     * hanno lo schema del dataset.
+     */
+    public OnlineKmeans(KmeansMiner kmeans, Data data, double decay){
+        this.C = kmeans.getC();
+        this.data = data;
+        C.encodeCentroids(data);
+        centroids = new RunningCentroid[C.getNumberOfClusters()];
+        for(int i = 0; i < centroids.length; i++){
+            Cluster cluster = C.get(i);
+            centroids[i] = new RunningCentroid(data, cluster.getCentroid(), cluster.getClusteredData().length, decay);
+        }
+    }
+
+    /**
+     * Assegna una nuova transazione al cluster più vicino (a parità di distanza, quello d'indice minore)
+     * e ne sposta il centroide verso la transazione.
+     *
+     * @param example transazione con un valore per ogni attributo del dataset.
+     *
+     * @return indice del cluster a cui è stata assegnata la transazione.
+     *
+     * @throws IllegalArgumentException se il valore di un attributo continuo non è numerico.
+     */
+    public synchronized int add(Example example){
+        long start = System.nanoTime();
+        Tuple tuple = data.getItemSet(example);
+        int nearest = 0;
+        double nearestDistance = tuple.getDistance(C.get(0).getCentroid());
+        for(int i = 1; i < centroids.length; i++){
+            double d = tuple.getDistance(C.get(i).getCentroid());
+            if(d < nearestDistance){
+                nearestDistance = d;
+                nearest = i;
+            }
+        }
+        centroids[nearest].add(tuple);
+        numberOfExamples++;
+        updateTime += System.nanoTime() - start;
+        return nearest;
+    }
+
+    /**
+     * Restituisce il numero di transazioni ricevute.
+     *
+     * @return numero di transazioni.
+     */
+    public synchronized long getNumberOfExamples(){
+        return numberOfExamples;
+    }
+
+    /**
+     * Restituisce il numero di transazioni ricevute da un cluster, comprese quelle del clustering di partenza.
+     *
+     * @param i indice del cluster.
+     *
+     * @return numero di transazioni del cluster.
+     */
+    public synchronized long getClusterSize(int i){
+        return C.get(i).getClusteredData().length + centroids[i].getSize();
+    }
+
+    /**
+     * Restituisce il tempo medio di aggiornamento per transazione.
+     *
+     * @return tempo medio in microsecondi, 0 se non sono state ricevute transazioni.
+     */
+    public synchronized double getAverageUpdateTime(){
+        return numberOfExamples == 0 ? 0 : updateTime / 1000.0 / numberOfExamples;
+    }
+
+    /**
+     * Restituisce una stringa che rappresenta i centroidi correnti con il numero di transazioni di ogni cluster.
+     *
+     * @return stringa che rappresenta i cluster.
+     */
+    @Override
+    public synchronized String toString(){
+        StringBuilder str = new StringBuilder();
+        for(int i = 0; i < centroids.length; i++)
+            str.append(i).append(":").append(C.get(i)).append(" size=").append(getClusterSize(i)).append("\n");
+        return str.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package mining;
+
+/**
+ * Questa enumerazione rappresenta i modi in cui K-means sceglie i centroidi iniziali.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+public enum SEEDING_TYPE {
+    /**
+     * Rappresenta la scelta di k transazioni distinte a caso.
+     */
+    RANDOM,
+
+    /**
+     * Rappresenta la scelta k-means++, con probabilità proporzionale al quadrato della distanza dai centroidi già scelti.
+     */
+    KMEANS_PLUS_PLUS,
+
+    /**
+     * Rappresenta la scelta k-means||, che estrae molte candidate in pochi turni e sceglie tra esse i centroidi.
+     */
+    KMEANS_PARALLEL
+}
@@ -0,0 +1,108 @@
+package mining;
+
+/**
+ * Classe che rappresenta il risultato di K-means per un numero di cluster, come punto della curva con cui
+ * scegliere il numero di cluster (metodo del gomito).
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+public class SweepPoint {
+    /**
+     * Numero di cluster.
+     */
+    private final int k;
+
+    /**
+     * Somma delle distanze di ogni tupla dal centroide del proprio cluster.
+     */
+    private final double totalDistance;
+
+    /**
+     * Media, sui cluster non vuoti, della distanza media delle tuple dal centroide del cluster.
+     */
+    private final double averageClusterDistance;
+
+    /**
+     * Numero d'iterazioni eseguite.
+     */
+    private final int numberOfIterations;
+
+    /**
+     * Indici di qualità del clustering.
+     */
+    private final ClusterMetrics metrics;
+
+    /**
+     * Crea il risultato di K-means per un numero di cluster.
+     *
+     * @param k numero di cluster.
+     * @param totalDistance somma delle distanze di ogni tupla dal centroide del proprio cluster.
+     * @param averageClusterDistance media della distanza media delle tuple di ogni cluster dal centroide.
+     * @param numberOfIterations numero d'iterazioni eseguite.
+     * @param metrics indici di qualità del clustering.
+     */
+    SweepPoint(int k, double totalDistance, double averageClusterDistance, int numberOfIterations, ClusterMetrics metrics){
+        this.k = k;
+        this.totalDistance = totalDistance;
+        this.averageClusterDistance = averageClusterDistance;
+        this.numberOfIterations = numberOfIterations;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Restituisce il numero di cluster.
+     *
+     * @return numero di cluster.
+     */
+    public int getK(){
+        return k;
+    }
+
+    /**
+     * Restituisce la somma delle distanze di ogni tupla dal centroide del proprio cluster.
+     *
+     * @return distanza complessiva.
+     */
+    public double getTotalDistance(){
+        return totalDistance;
+    }
+
+    /**
+     * Restituisce la media, sui cluster non vuoti, della distanza media delle tuple dal centroide del cluster.
+     *
+     * @return distanza media dei cluster.
+     */
+    public double getAverageClusterDistance(){
+        return averageClusterDistance;
+    }
+
+    /**
+     * Restituisce il numero d'iterazioni eseguite.
+     *
+     * @return numero d'iterazioni.
+     */
+    public int getNumberOfIterations(){
+        return numberOfIterations;
+    }
+
+    /**
+     * Restituisce gli indici di qualità del clustering.
+     *
+     * @return indici di qualità.
+     */
+    public ClusterMetrics getMetrics(){
+        return metrics;
+    }
+
+    /**
+     * Restituisce una stringa che rappresenta il risultato come riga di una tabella.
+     *
+     * @return stringa con il numero di cluster, la distanza complessiva, la distanza media dei cluster, il numero
+     * d'iterazioni, la silhouette e gli indici di Davies–Bouldin e Calinski–Harabasz.
+     */
+    @Override
+    public String toString(){
+        return String.format("%d\t%.4f\t%.4f\t%d\t%.4f\t%.4f\t%.4f", k, totalDistance, averageClusterDistance,
+                numberOfIterations, metrics.getSilhouette(), metrics.getDaviesBouldin(), metrics.getCalinskiHarabasz());
+    }
+}
@@ -0,0 +1,178 @@
+package mining;
+
+import data.Data;
+
+/**
+ * Classe che assegna le tuple ai cluster con l'algoritmo Yinyang: i centroidi sono divisi in gruppi e per ogni tupla
+ * si mantengono un limite superiore alla distanza dal proprio centroide e un limite inferiore alla distanza dai
+ * centroidi di ogni gruppo. Si calcolano le distanze dai soli centroidi dei gruppi che i limiti non escludono.
+ * Richiede memoria proporzionale al numero di tuple per il numero di gruppi.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+class YinyangAssignment extends BoundedAssignment {
+    /**
+     * Numero di centroidi per gruppo.
+     */
+    static final int CENTROIDS_PER_GROUP = 10;
+
+    /**
+     * Gruppo di ogni centroide.
+     */
+    private int[] group;
+
+    /**
+     * Centroidi di ogni gruppo.
+     */
+    private int[][] members;
+
+    /**
+     * Limite inferiore alla distanza di ogni tupla dai centroidi di ogni gruppo, escluso quello a cui è assegnata.
+     */
+    private double[][] lower;
+
+    /**
+     * Spostamento maggiore tra i centroidi di ogni gruppo nell'ultimo aggiornamento.
+     */
+    private double[] groupShift;
+
+    /**
+     * Alloca i limiti delle tuple e divide i centroidi iniziali in gruppi: i primi centroidi fanno da capogruppo
+     * e ogni altro centroide si unisce al gruppo del capogruppo più vicino.
+     *
+     * @param data dataset.
+     * @param clusters insieme dei cluster.
+     */
+    @Override
+    void initialize(Data data, ClusterSet clusters){
+        super.initialize(data, clusters);
+        int groups = Math.max(1, centroids.length / CENTROIDS_PER_GROUP);
+        group = new int[centroids.length];
+        int[] sizes = new int[groups];
+        for(int c = 0; c < centroids.length; c++){
+            if(c < groups){
+                group[c] = c;
+            } else {
+                for(int g = 1; g < groups; g++)
+                    if(centroids[c].getDistance(centroids[g]) < centroids[c].getDistance(centroids[group[c]]))
+                        group[c] = g;
+            }
+            sizes[group[c]]++;
+        }
+        members = new int[groups][];
+        for(int g = 0; g < groups; g++)
+            members[g] = new int[sizes[g]];
+        int[] filled = new int[groups];
+        for(int c = 0; c < centroids.length; c++)
+            members[group[c]][filled[group[c]]++] = c;
+        lower = new double[data.getNumberOfExamples()][];
+        groupShift = new double[groups];
+    }
+
+    /**
+     * Assegna al cluster più vicino le tuple con indice compreso tra from (incluso) e to (escluso).
+     * Alla prima iterazione calcola tutte le distanze per inizializzare i limiti; in seguito aggiorna i limiti
+     * con gli spostamenti dei centroidi e calcola le distanze dai soli gruppi che non possono essere esclusi.
+     *
+     * @param data dataset.
+     * @param clusters insieme dei cluster.
+     * @param from indice della prima tupla.
+     * @param to indice successivo all'ultima tupla.
+     *
+     * @return spostamenti delle tuple che hanno cambiato cluster.
+     */
+    @Override
+    ClusterSet.Moves assign(Data data, ClusterSet clusters, int from, int to){
+        ClusterSet.Moves moves = new ClusterSet.Moves();
+        long distances = 0;
+        //distanza minima e seconda minima dai centroidi di ogni gruppo esaminato, con il centroide più vicino
+        double[] first = new double[members.length];
+        double[] second = new double[members.length];
+        int[] firstCentroid = new int[members.length];
+        boolean[] examined = new boolean[members.length];
+        for(int x = from; x < to; x++){
+            int current = clusters.getAssignment(x);
+            double[] l;
+            double u;
+            if(current < 0){
+                l = lower[x] = new double[members.length];
+                u = Double.POSITIVE_INFINITY;
+            } else {
+                l = lower[x];
+                u = upper[x] + shift[current];
+                double globalLower = Double.POSITIVE_INFINITY;
+                for(int g = 0; g < members.length; g++){
+                    l[g] -= groupShift[g];
+                    globalLower = Math.min(globalLower, l[g]);
+                }
+                //la metà della distanza dal centroide più vicino vale solo se la tupla rispetta la disuguaglianza triangolare
+                double bound = data.hasMissingContinuousValue(x) ? globalLower : Math.max(globalLower, halfNearest[current]);
+                if(excluded(bound, u)){
+                    upper[x] = u;
+                    continue;
+                }
+                u = data.distance(x, centroids[current]);
+                distances++;
+                if(excluded(bound, u)){
+                    upper[x] = u;
+                    continue;
+                }
+            }
+
+            int nearest = current;
+            double currentDistance = u;
+            for(int g = 0; g < members.length; g++){
+                examined[g] = current < 0 || !excluded(l[g], u);
+                if(!examined[g])
+                    continue;
+                first[g] = Double.POSITIVE_INFINITY;
+                second[g] = Double.POSITIVE_INFINITY;
+                firstCentroid[g] = -1;
+                for(int c : members[g]){
+                    if(c == current)
+                        continue;
+                    double d = data.distance(x, centroids[c]);
+                    distances++;
+                    if(d < first[g]){
+                        second[g] = first[g];
+                        first[g] = d;
+                        firstCentroid[g] = c;
+                    } else if(d < second[g]){
+                        second[g] = d;
+                    }
+                    if(d < u || (d == u && c < nearest)){
+                        nearest = c;
+                        u = d;
+                    }
+                }
+            }
+            for(int g = 0; g < members.length; g++)
+                if(examined[g])
+                    l[g] = firstCentroid[g] == nearest ? second[g] : first[g];
+            //il centroide abbandonato entra nel limite del suo gruppo
+            if(current >= 0 && nearest != current)
+                l[group[current]] = Math.min(l[group[current]], currentDistance);
+            upper[x] = u;
+            if(clusters.assign(x, nearest))
+                moves.add(x, current);
+        }
+        moves.countDistances(distances);
+        return moves;
+    }
+
+    /**
+     * Calcola lo spostamento di ogni centroide, le distanze tra i centroidi aggiornati e lo spostamento
+     * maggiore di ogni gruppo.
+     *
+     * @param clusters insieme dei cluster.
+     */
+    @Override
+    void centroidsUpdated(ClusterSet clusters){
+        super.centroidsUpdated(clusters);
+        for(int g = 0; g < members.length; g++){
+            groupShift[g] = 0;
+            for(int c : members[g])
+                groupShift[g] = Math.max(groupShift[g], shift[c]);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package server;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Writer;
+
+/**
+ * Classe che invia al client il risultato di una richiesta mentre viene prodotto, come sequenza di stringhe di al più
+ * {@link #CHUNK_SIZE} caratteri terminata da {@code null}. Prima della prima stringa invia un'intestazione
+ * (tipicamente "OK"), così che il client sappia che la richiesta è riuscita. La memoria occupata non dipende dalla
+ * lunghezza del risultato: dopo ogni stringa lo stream viene azzerato, così che non conservi i riferimenti agli
+ * oggetti già inviati. Se la richiesta fallisce dopo l'intestazione, al posto delle stringhe mancanti il client riceve
+ * un oggetto {@link Exception} con il messaggio di errore, che non si può confondere con una parte del risultato,
+ * seguito da {@code null}.
+ *
+ * @author Alessandro Ferrulli, Nazim Elmadhi.
+ */
+class ChunkedResultWriter extends Writer {
+    /**
+     * Numero massimo di caratteri di una stringa inviata.
+     */
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Stream verso il client.
+     */
+    private final ObjectOutputStream out;
+
+    /**
+     * Intestazione da inviare prima della prima stringa, {@code null} se già inviata.
+     */
+    private String header;
+
+    /**
+     * Caratteri non ancora inviati.
+     */
+    private final StringBuilder buffer = new StringBuilder(CHUNK_SIZE);
+
+    /**
+     * Crea lo scrittore del risultato di una richiesta.
+     *
+     * @param out stream verso il client.
+     * @param header intestazione da inviare prima del risultato.
+     */
+    ChunkedResultWriter(ObjectOutputStream out, String header){
+        this.out = out;
+        this.header = header;
+    }
+
+    /**
+     * Aggiunge dei caratteri al risultato, inviando una stringa ogni {@link #CHUNK_SIZE} caratteri.
+     *
+     * @param chars caratteri da scrivere.
+     * @param offset indice del primo carattere.
+     * @param length numero di caratteri.
+     *
+     * @throws IOException se l'invio non riesce.
+     */
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        while (length > 0) {
+            int n = Math.min(length, CHUNK_SIZE - buffer.length());
+            buffer.append(chars, offset, n);
+            offset += n;
+            length -= n;
+            if (buffer.length() == CHUNK_SIZE)
+                send();
+        }
+    }
+
+    /**
+     * Invia i caratteri non ancora inviati.
+     *
+     * @throws IOException se l'invio non riesce.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (buffer.length() > 0)
+            send();
+        out.flush();
+    }
+
+    /**
+     * Invia i caratteri non ancora inviati e la fine del risultato; l'intestazione viene inviata anche se il
+     * risultato è vuoto.
+     *
+     * @throws IOException se l'invio non riesce.
+     */
+    @Override
+    public void close() throws IOException {
+        if (buffer.length() > 0)
+            send();
+        sendHeader();
+        out.writeObject(null);
+        out.flush();
+    }
+
+    /**
+     * Indica se l'intestazione è già stata inviata, cioè se il client ha già ricevuto l'esito positivo della richiesta.
+     *
+     * @return {@code true} se l'intestazione è stata inviata.
+     */
+    boolean isStarted(){
+        return header == null;
+    }
+
+    /**
+     * Conclude con un errore un risultato di cui è già stata inviata l'intestazione: scarta i caratteri non ancora
+     * inviati e invia l'errore, senza la traccia dello stack del server, seguito da {@code null}.
+     *
+     * @param message messaggio di errore.
+     *
+     * @throws IOException se l'invio non riesce.
+     * @throws IllegalStateException se l'intestazione non è stata inviata: in tal caso l'errore si invia come
+     * esito della richiesta, al posto dell'intestazione.
+     */
+    void fail(String message) throws IOException {
+        if (!isStarted())
+            throw new IllegalStateException("Result not started");
+        buffer.setLength(0);
+        Exception error = new Exception(message);
+        error.setStackTrace(new StackTraceElement[0]);
+        out.writeObject(error);
+        out.writeObject(null);
+        out.reset();
+        out.flush();
+    }
+
+    /**
+     * Invia come una stringa i caratteri non ancora inviati, preceduti dall'intestazione se è la prima.
+     *
+     * @throws IOException se l'invio non riesce.
+     */
+    private void send() throws IOException {
+        sendHeader();
+        out.writeObject(buffer.toString());
+        out.reset();
+        out.flush();
+        buffer.setLength(0);
+    }
+
+    /**
+     * Invia l'intestazione, se non è già stata inviata.
+     *
+     * @throws IOException se l'invio non riesce.
+     */
+    private void sendHeader() throws IOException {
+        if (header != null) {
+            out.writeObject(header);
+            header = null;
+        }
+    }
+}
@@ -4,13 +4,25 @@ import data.Data;
 import data.OutofRangeSampleSize;
 import database.DatabaseConnectionException;
 import database.EmptySetException;
+import database.Example;
 import database.NoValueException;
+import mining.ENGINE_TYPE;
 import mining.KmeansMiner;
+import mining.OnlineKmeans;
+import mining.SEEDING_TYPE;
+import mining.SweepPoint;
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.net.Socket;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Classe che gestisce la connessione con un client.
@@ -39,11 +51,36 @@ public class ServerOneClient extends Thread {
      */
     private KmeansMiner kmeans;
 
+    /**
+     * Dataset su cui è stato calcolato l'ultimo clustering.
+     */
+    private Data data;
+
+    /**
+     * Aggiornamento online dell'ultimo clustering, creato alla prima richiesta di aggiornamento.
+     */
+    private OnlineKmeans online;
+
+    /**
+     * Fattore di oblio dell'aggiornamento online, scelto con la richiesta 6 o 8 insieme al clustering a cui si applica.
+     */
+    private double decay = 0;
+
     /**
      * Nome della tabella da cui estrarre i dati.
      */
     static String tableName = null;
 
+    /**
+     * Numero minimo di esempi per cui conviene impiegare un thread aggiuntivo nel clustering.
+     */
+    private static final int EXAMPLES_PER_THREAD = 16384;
+
+    /**
+     * Cartella in cui sono salvati i cluster.
+     */
+    private static final String SAVES_DIRECTORY = ".\\KmeansBase\\src\\main\\java\\org\\example\\KmeansServer\\saves/";
+
     /**
      * Costruttore della classe.
      *
@@ -93,15 +130,20 @@ public class ServerOneClient extends Thread {
                         break;
 
                     case 1:
-                        System.out.println("ServerOneClient: request 1");
+                    case 6: //come la richiesta 1, seguita dalla mappa dei parametri del clustering
+                        System.out.println("ServerOneClient: request " + request);
                         try {
                             int numberOfClusters = (Integer) in.readObject();
+                            Map<String, Object> parameters = request == 6 ? readParameters() : new HashMap<>();
                             String result;
 
-                            result = learningFromDb(tableName, numberOfClusters);
+                            result = learningFromDb(tableName, numberOfClusters, parameters);
                             System.out.println("ServerOneClient: result received");
-                            out.writeObject("OK");
-                            out.writeObject(result);
+                            //con il parametro stream il risultato è già stato inviato a blocchi
+                            if (!booleanParameter(parameters, "stream", false)) {
+                                out.writeObject("OK");
+                                out.writeObject(result);
+                            }
                         } catch (ServerException e){
                             if (e.getMessage().contains("You have an error in your SQL syntax"))
                                 out.writeObject("You have an error in your SQL syntax");
@@ -118,15 +160,54 @@ public class ServerOneClient extends Thread {
                         break;
 
                     case 3:
-                        System.out.println("ServerOneClient: request 3");
+                    case 10: //come la richiesta 3, seguita dalla mappa dei parametri: stream per ricevere i cluster a blocchi
+                        System.out.println("ServerOneClient: request " + request);
+                        try {
+                            String resultFromFile = learningFromFile(request == 10);
+                            //con il parametro stream il risultato è già stato inviato a blocchi
+                            if (resultFromFile != null) {
+                                out.writeObject("OK");
+                                out.writeObject(resultFromFile);
+                            }
+                        } catch (ServerException e){
+                            out.writeObject("Error: " + e.getMessage());
+                        }
+
+                        break;
+
+                    case 7: //aggiornamento online dell'ultimo clustering con le nuove transazioni
+                        System.out.println("ServerOneClient: request 7");
                         try {
-                            String resultFromFile = learningFromFile();
+                            String resultOnline = learningOnline(in.readObject());
                             out.writeObject("OK");
-                            out.writeObject(resultFromFile);
+                            out.writeObject(resultOnline);
+                        } catch (ServerException e){
+                            out.writeObject(e.getMessage());
+                        }
+                        break;
+
+                    case 8: //come la richiesta 3, seguita dalla mappa dei parametri: riprende il clustering salvato sulla tabella corrente
+                        System.out.println("ServerOneClient: request 8");
+                        try {
+                            String resultWarmStart = relearningFromFile();
+                            if (resultWarmStart != null) {
+                                out.writeObject("OK");
+                                out.writeObject(resultWarmStart);
+                            }
                         } catch (ServerException e){
                             out.writeObject("Error: " + e.getMessage());
                         }
+                        break;
 
+                    case 9: //come la richiesta 6, con un intervallo di valori di k: tabella della curva del gomito
+                        System.out.println("ServerOneClient: request 9");
+                        try {
+                            String resultSweep = learningSweep(tableName);
+                            out.writeObject("OK");
+                            out.writeObject(resultSweep);
+                        } catch (ServerException e){
+                            out.writeObject(e.getMessage());
+                        }
                         break;
                 }
             } catch (IOException e){
@@ -160,6 +241,23 @@ public class ServerOneClient extends Thread {
         return TableName;
     }
 
+    /**
+     * Metodo che legge dal client la mappa dei parametri del clustering.
+     *
+     * @return Mappa che associa il nome di ogni parametro al suo valore.
+     *
+     * @throws IOException Eccezione lanciata in caso di errore d'I/O.
+     * @throws ClassNotFoundException Eccezione lanciata se la classe dell'oggetto ricevuto non viene trovata.
+     * @throws ServerException Eccezione lanciata se l'oggetto ricevuto non è una mappa.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readParameters() throws IOException, ClassNotFoundException, ServerException {
+        Object parameters = in.readObject();
+        if (!(parameters instanceof Map))
+            throw new ServerException("Invalid parameters");
+        return (Map<String, Object>) parameters;
+    }
+
     /**
      * Metodo che gestisce l'algoritmo di clustering.
      *
@@ -171,21 +269,61 @@ public class ServerOneClient extends Thread {
      * @throws ServerException Eccezione lanciata in caso di errore.
      */
     public String learningFromDb(String tableName, int numberOfClusters) throws ServerException{
-        String result = null;
+        return learningFromDb(tableName, numberOfClusters, new HashMap<>());
+    }
+
+    /**
+     * Metodo che gestisce l'algoritmo di clustering con i parametri scelti dal client.
+     * I parametri riconosciuti sono:
+     * <ul>
+     *     <li>{@code parallelism}: numero di thread (per default scelto in base al numero di esempi);</li>
+     *     <li>{@code engine}: strategia di assegnazione, uno dei valori di {@link ENGINE_TYPE} (per default LLOYD);</li>
+     *     <li>{@code seeding}: scelta dei centroidi iniziali, uno dei valori di {@link SEEDING_TYPE} (per default RANDOM);</li>
+     *     <li>{@code rounds}: numero di turni di estrazione di KMEANS_PARALLEL (per default 5);</li>
+     *     <li>{@code oversampling}: candidate estratte per turno da KMEANS_PARALLEL, in rapporto a k (per default 2);</li>
+     *     <li>{@code seed}: seme della scelta dei centroidi iniziali, per ripetere lo stesso clustering (per default casuale);</li>
+     *     <li>{@code batchSize}: tuple estratte a ogni iterazione della versione mini-batch (per default 0, tutte le tuple);</li>
+     *     <li>{@code maxIterations}: numero massimo d'iterazioni (per default 0, il limite predefinito della versione);</li>
+     *     <li>{@code tolerance}: spostamento dei centroidi in un'iterazione sotto il quale K-means si arresta (per default 0, nessuno);</li>
+     *     <li>{@code minMoved}: frazione delle tuple spostate in un'iterazione sotto la quale K-means si arresta
+     *     (per default 0, si arresta solo quando nessuna tupla cambia cluster);</li>
+     *     <li>{@code restarts}: numero di esecuzioni indipendenti, in parallelo, tra cui scegliere quella con la minore
+     *     distanza complessiva; quelle distanti dalla migliore vengono interrotte (per default 1);</li>
+     *     <li>{@code vectorized}: {@code true} o {@code false} per usare o meno la Vector API nel calcolo delle distanze
+     *     (per default la usa se la JVM è avviata con {@code --add-modules jdk.incubator.vector});</li>
+     *     <li>{@code decay}: frazione del peso dei contributi precedenti persa da un centroide a ogni transazione
+     *     ricevuta con la richiesta 7 (per default 0, nessun oblio);</li>
+     *     <li>{@code stream}: {@code true} per ricevere il risultato mentre viene prodotto: dopo "OK" il client riceve
+     *     una sequenza di stringhe terminata da {@code null}, in cui un errore durante l'invio arriva come un oggetto
+     *     {@link Exception} prima di {@code null} (per default false, un'unica stringa).</li>
+     * </ul>
+     * Un parametro di tipo diverso da quello atteso o fuori dall'intervallo ammesso (ad esempio un numero di thread
+     * minore di 1 o un decay pari a 1) viene rifiutato con l'errore "Invalid value for parameter", senza correggerlo.
+     *
+     * @param tableName Nome della tabella da cui estrarre i dati.
+     * @param numberOfClusters Numero di cluster da creare.
+     * @param parameters Mappa che associa il nome di ogni parametro al suo valore.
+     *
+     * @return Stringa contenente i risultati dell'algoritmo di clustering, {@code null} se sono stati inviati al client
+     * a blocchi.
+     *
+     * @throws ServerException Eccezione lanciata in caso di errore o di parametro non valido.
+     */
+    public String learningFromDb(String tableName, int numberOfClusters, Map<String, Object> parameters) throws ServerException{
+        Writer result = openResult(parameters);
+        boolean written = false;
         Data data = null;
         try {
             data = new Data(tableName);
 
-            if (numberOfClusters > data.getNumberOfExamples())
-                throw new ServerException("Number of clusters is greater than number of examples");
-
-            kmeans = new KmeansMiner(numberOfClusters);
-            int numberOfIterations = kmeans.kmeans(data);
-            result = "\nNumber of iterations: " + numberOfIterations + "\n" +
-                    kmeans.getC().toString() + "\n" +
-                    kmeans.getC().toString(data);
+            int numberOfIterations = learning(data, numberOfClusters, parameters);
 
             storeClusterInFile(numberOfClusters);
+            result.write("\nSeed: " + kmeans.getSeed() + "\n");
+            report(result, data, numberOfIterations);
+            written = true;
+        } catch (IOException e) {
+            return failResult(result, e.getMessage());
         } catch (DatabaseConnectionException e){
             System.out.println("ServerOneClient: DatabaseConnectionException (!)");
             System.out.println(e.getMessage());
@@ -199,7 +337,350 @@ public class ServerOneClient extends Thread {
             throw new ServerException(e.getMessage());
         }
 
-        return result;
+        return closeResult(result, written);
+    }
+
+    /**
+     * Esegue K-means sul dataset con i parametri scelti dal client e, solo se l'esecuzione riesce, ne fa il clustering
+     * corrente. Se un parametro non è valido o l'esecuzione non riesce, il clustering corrente e il suo aggiornamento
+     * online restano quelli precedenti.
+     *
+     * @param data Dataset su cui eseguire il clustering.
+     * @param numberOfClusters Numero di cluster da creare.
+     * @param parameters Mappa che associa il nome di ogni parametro al suo valore.
+     *
+     * @return Numero d'iterazioni eseguite.
+     *
+     * @throws ServerException Eccezione lanciata se il numero di cluster supera il numero di esempi o in caso di
+     * parametro non valido.
+     * @throws OutofRangeSampleSize Eccezione lanciata se il numero di cluster non è valido.
+     */
+    int learning(Data data, int numberOfClusters, Map<String, Object> parameters) throws ServerException, OutofRangeSampleSize {
+        if (numberOfClusters > data.getNumberOfExamples())
+            throw new ServerException("Number of clusters is greater than number of examples");
+
+        KmeansMiner kmeans = new KmeansMiner(numberOfClusters);
+        configure(kmeans, parameters, data.getNumberOfExamples());
+        double decay = decayParameter(parameters);
+        int numberOfIterations = kmeans.kmeans(data);
+        setClustering(kmeans, data, decay);
+        return numberOfIterations;
+    }
+
+    /**
+     * Rende corrente un clustering calcolato o caricato con successo, insieme al dataset e al fattore di oblio con cui
+     * aggiornarlo, e scarta l'aggiornamento online del clustering precedente.
+     *
+     * @param kmeans Clustering da rendere corrente.
+     * @param data Dataset su cui è stato calcolato o ricaricato il clustering.
+     * @param decay Fattore di oblio dell'aggiornamento online.
+     */
+    private void setClustering(KmeansMiner kmeans, Data data, double decay) {
+        this.kmeans = kmeans;
+        this.data = data;
+        this.decay = decay;
+        online = null;
+    }
+
+    /**
+     * Crea la destinazione del risultato di una richiesta: il client, a blocchi, se il parametro {@code stream}
+     * è {@code true}, altrimenti una stringa da inviare per intero.
+     *
+     * @param parameters Mappa dei parametri.
+     *
+     * @return Destinazione del risultato.
+     *
+     * @throws ServerException Eccezione lanciata se il parametro stream non è valido.
+     */
+    private Writer openResult(Map<String, Object> parameters) throws ServerException {
+        return booleanParameter(parameters, "stream", false) ? new ChunkedResultWriter(out, "OK") : new StringWriter();
+    }
+
+    /**
+     * Conclude il risultato di una richiesta: se è inviato a blocchi ne invia la fine, altrimenti lo restituisce.
+     *
+     * @param result Destinazione del risultato creata da {@link #openResult(Map)}.
+     * @param written {@code true} se il risultato è stato prodotto.
+     *
+     * @return Stringa contenente il risultato, {@code null} se è stato inviato a blocchi o non è stato prodotto.
+     *
+     * @throws ServerException Eccezione lanciata se l'invio non riesce.
+     */
+    private static String closeResult(Writer result, boolean written) throws ServerException {
+        if (result instanceof StringWriter)
+            return written ? result.toString() : null;
+        try {
+            result.close();
+        } catch (IOException e) {
+            return failResult(result, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Segnala un errore della richiesta. Se una parte del risultato è già stata inviata a blocchi, il client ha già
+     * ricevuto "OK": l'errore viene inviato come conclusione del risultato (vedi {@link ChunkedResultWriter}).
+     * Altrimenti viene lanciato, così che il client lo riceva al posto di "OK".
+     *
+     * @param result Destinazione del risultato creata da {@link #openResult(Map)}, {@code null} se non ancora creata.
+     * @param message Messaggio di errore.
+     *
+     * @return {@code null}, perché il risultato è stato concluso.
+     *
+     * @throws ServerException Eccezione con il messaggio di errore, lanciata se il client non ha ricevuto "OK"
+     * o se l'invio dell'errore non riesce.
+     */
+    private static String failResult(Writer result, String message) throws ServerException {
+        if (!(result instanceof ChunkedResultWriter) || !((ChunkedResultWriter) result).isStarted())
+            throw new ServerException(message);
+        try {
+            ((ChunkedResultWriter) result).fail(message);
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Imposta i parametri del clustering scelti dal client, descritti in {@link #learningFromDb(String, int, Map)}.
+     *
+     * @param kmeans Clustering da configurare.
+     * @param parameters Mappa che associa il nome di ogni parametro al suo valore.
+     * @param numberOfExamples Numero di esempi della tabella.
+     *
+     * @throws ServerException Eccezione lanciata in caso di parametro non valido.
+     */
+    private void configure(KmeansMiner kmeans, Map<String, Object> parameters, int numberOfExamples) throws ServerException {
+        int parallelism = intParameter(parameters, "parallelism", chooseParallelism(numberOfExamples));
+        if (parallelism < 1)
+            throw invalidParameter("parallelism", parallelism);
+        kmeans.setParallelism(parallelism);
+        kmeans.setEngine(enumParameter(parameters, "engine", ENGINE_TYPE.class, ENGINE_TYPE.LLOYD));
+        kmeans.setSeeding(enumParameter(parameters, "seeding", SEEDING_TYPE.class, SEEDING_TYPE.RANDOM));
+        int rounds = intParameter(parameters, "rounds", 5);
+        if (rounds < 1)
+            throw invalidParameter("rounds", rounds);
+        kmeans.setSeedingRounds(rounds);
+        double oversampling = doubleParameter(parameters, "oversampling", 2);
+        if (!(oversampling > 0))
+            throw invalidParameter("oversampling", oversampling);
+        kmeans.setOversampling(oversampling);
+        if (parameters.get("seed") != null)
+            kmeans.setSeed(longParameter(parameters, "seed"));
+        int batchSize = intParameter(parameters, "batchSize", 0);
+        if (batchSize < 0)
+            throw invalidParameter("batchSize", batchSize);
+        kmeans.setBatchSize(batchSize);
+        int maxIterations = intParameter(parameters, "maxIterations", 0);
+        if (maxIterations < 0)
+            throw invalidParameter("maxIterations", maxIterations);
+        kmeans.setMaxIterations(maxIterations);
+        double tolerance = doubleParameter(parameters, "tolerance", 0);
+        if (!(tolerance >= 0))
+            throw invalidParameter("tolerance", tolerance);
+        kmeans.setTolerance(tolerance);
+        double minMoved = doubleParameter(parameters, "minMoved", 0);
+        if (!(minMoved >= 0 && minMoved <= 1))
+            throw invalidParameter("minMoved", minMoved);
+        kmeans.setMinMovedFraction(minMoved);
+        int restarts = intParameter(parameters, "restarts", 1);
+        if (restarts < 1)
+            throw invalidParameter("restarts", restarts);
+        kmeans.setRestarts(restarts);
+        kmeans.setVectorized(booleanParameter(parameters, "vectorized", Data.isVectorApiAvailable()));
+    }
+
+    /**
+     * Restituisce il fattore di oblio dell'aggiornamento online scelto dal client. Non fa parte di
+     * {@link #configure(KmeansMiner, Map, int)}, perché vale solo per il clustering corrente: le richieste che non lo
+     * sostituiscono, come la 9, non devono modificarlo.
+     *
+     * @param parameters Mappa dei parametri.
+     *
+     * @return Fattore di oblio, tra 0 (incluso) e 1 (escluso).
+     *
+     * @throws ServerException Eccezione lanciata se il valore non è valido.
+     */
+    private static double decayParameter(Map<String, Object> parameters) throws ServerException {
+        double decay = doubleParameter(parameters, "decay", 0);
+        if (!(decay >= 0 && decay < 1))
+            throw invalidParameter("decay", decay);
+        return decay;
+    }
+
+    /**
+     * Scrive la descrizione dell'ultimo clustering: tempi, iterazioni, distanze calcolate, indici di qualità e cluster.
+     * I cluster sono scritti una tupla alla volta.
+     *
+     * @param result Destinazione del testo.
+     * @param data Dataset su cui è stato calcolato il clustering.
+     * @param numberOfIterations Numero d'iterazioni eseguite.
+     *
+     * @throws IOException Eccezione lanciata se la scrittura non riesce.
+     */
+    private void report(Writer result, Data data, int numberOfIterations) throws IOException {
+        result.write("Seeding time: " + kmeans.getSeedingTime() + " ms\n" +
+                "Clustering time: " + kmeans.getClusteringTime() + " ms\n" +
+                "Number of iterations: " + numberOfIterations + "\n" +
+                (kmeans.getRestarts() > 1 ? "Best restart: " + kmeans.getBestRestart() + " of " + kmeans.getRestarts() +
+                        " (" + kmeans.getStoppedRestarts() + " stopped early)\n" : "") +
+                "Total distance: " + kmeans.getTotalDistance() + "\n" +
+                kmeans.getMetrics() + "\n" +
+                (kmeans.getMovedRows().isEmpty() ? "" : "Moved rows per iteration: " + kmeans.getMovedRows() + "\n") +
+                "Distance computations: " + kmeans.getDistanceComputations() +
+                String.format(" (%.1f%% skipped)", 100 * kmeans.getSkippedDistanceFraction()) + "\n" +
+                kmeans.getC().toString() + "\n");
+        kmeans.getC().write(result, data);
+    }
+
+    /**
+     * Sceglie il numero di thread da usare per il clustering di una richiesta: un thread ogni
+     * {@link #EXAMPLES_PER_THREAD} esempi, senza superare il numero di processori disponibili.
+     *
+     * @param numberOfExamples numero di esempi della tabella.
+     *
+     * @return numero di thread da usare.
+     */
+    private static int chooseParallelism(int numberOfExamples){
+        int processors = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(processors, numberOfExamples / EXAMPLES_PER_THREAD));
+    }
+
+    /**
+     * Restituisce il valore intero di un parametro del clustering.
+     *
+     * @param parameters Mappa dei parametri.
+     * @param name Nome del parametro.
+     * @param defaultValue Valore restituito se il parametro è assente.
+     *
+     * @return Valore del parametro.
+     *
+     * @throws ServerException Eccezione lanciata se il valore non è un intero.
+     */
+    private static int intParameter(Map<String, Object> parameters, String name, int defaultValue) throws ServerException {
+        Object value = parameters.get(name);
+        if (value == null)
+            return defaultValue;
+        if (value instanceof Number) {
+            //un valore con parte decimale o fuori dall'intervallo degli interi non viene troncato
+            double number = ((Number) value).doubleValue();
+            if (number != (int) number)
+                throw invalidParameter(name, value);
+            return (int) number;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw invalidParameter(name, value);
+        }
+    }
+
+    /**
+     * Restituisce il valore intero lungo di un parametro del clustering presente nella mappa.
+     *
+     * @param parameters Mappa dei parametri.
+     * @param name Nome del parametro.
+     *
+     * @return Valore del parametro.
+     *
+     * @throws ServerException Eccezione lanciata se il valore non è un intero.
+     */
+    private static long longParameter(Map<String, Object> parameters, String name) throws ServerException {
+        Object value = parameters.get(name);
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+            return ((Number) value).longValue();
+        if (value instanceof Number)
+            throw invalidParameter(name, value);
+        try {
+            return Long.parseLong(String.valueOf(value).trim());
+        } catch (NumberFormatException e) {
+            throw invalidParameter(name, value);
+        }
+    }
+
+    /**
+     * Restituisce il valore reale di un parametro del clustering.
+     *
+     * @param parameters Mappa dei parametri.
+     * @param name Nome del parametro.
+     * @param defaultValue Valore restituito se il parametro è assente.
+     *
+     * @return Valore del parametro.
+     *
+     * @throws ServerException Eccezione lanciata se il valore non è un numero.
+     */
+    private static double doubleParameter(Map<String, Object> parameters, String name, double defaultValue) throws ServerException {
+        Object value = parameters.get(name);
+        if (value == null)
+            return defaultValue;
+        if (value instanceof Number)
+            return ((Number) value).doubleValue();
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw invalidParameter(name, value);
+        }
+    }
+
+    /**
+     * Restituisce il valore booleano di un parametro del clustering.
+     *
+     * @param parameters Mappa dei parametri.
+     * @param name Nome del parametro.
+     * @param defaultValue Valore restituito se il parametro è assente.
+     *
+     * @return Valore del parametro.
+     *
+     * @throws ServerException Eccezione lanciata se il valore non è {@code true} o {@code false}.
+     */
+    private static boolean booleanParameter(Map<String, Object> parameters, String name, boolean defaultValue) throws ServerException {
+        Object value = parameters.get(name);
+        if (value == null)
+            return defaultValue;
+        if (value instanceof Boolean)
+            return (Boolean) value;
+        String text = value.toString().trim();
+        if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false"))
+            return Boolean.parseBoolean(text);
+        throw invalidParameter(name, value);
+    }
+
+    /**
+     * Restituisce il valore di un parametro del clustering che assume i valori di un'enumerazione,
+     * indicati dal client per nome senza distinzione tra maiuscole e minuscole.
+     *
+     * @param parameters Mappa dei parametri.
+     * @param name Nome del parametro.
+     * @param type Enumerazione dei valori ammessi.
+     * @param defaultValue Valore restituito se il parametro è assente.
+     * @param <E> Tipo dell'enumerazione.
+     *
+     * @return Valore del parametro.
+     *
+     * @throws ServerException Eccezione lanciata se il valore non appartiene all'enumerazione.
+     */
+    private static <E extends Enum<E>> E enumParameter(Map<String, Object> parameters, String name, Class<E> type, E defaultValue) throws ServerException {
+        Object value = parameters.get(name);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Enum.valueOf(type, value.toString().trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw invalidParameter(name, value);
+        }
+    }
+
+    /**
+     * Crea l'eccezione che segnala al client un parametro del clustering con un valore non ammesso,
+     * perché non è del tipo atteso o perché è fuori dall'intervallo dei valori validi.
+     *
+     * @param name Nome del parametro.
+     * @param value Valore ricevuto.
+     *
+     * @return Eccezione da lanciare.
+     */
+    private static ServerException invalidParameter(String name, Object value) {
+        return new ServerException("Invalid value for parameter " + name + ": " + value);
     }
 
     //2
@@ -213,7 +694,7 @@ public class ServerOneClient extends Thread {
     private void storeClusterInFile(int numberOfIteration){
         String result = null;
         try {
-            String fileName = ".\\KmeansBase\\src\\main\\java\\org\\example\\KmeansServer\\saves/" + tableName + "_" + numberOfIteration + ".dat";
+            String fileName = SAVES_DIRECTORY + tableName + "_" + numberOfIteration + ".dat";
             kmeans.save(fileName);
             System.out.println("Cluster saved in " + fileName);
         } catch (IOException e) {
@@ -225,38 +706,186 @@ public class ServerOneClient extends Thread {
     //3
 
     /**
-     * Metodo che gestisce l'algoritmo di clustering da un file.
+     * Metodo che gestisce l'algoritmo di clustering da un file. Legge dal client il nome della tabella, il numero di
+     * cluster e, se richiesto, la mappa dei parametri, di cui considera solo {@code stream}: con {@code stream} pari a
+     * {@code true} i cluster sono inviati a blocchi mentre vengono scritti, come per la richiesta 6.
      *
-     * @return Stringa contenente i risultati dell'algoritmo di clustering.
+     * @param withParameters {@code true} se il client invia anche la mappa dei parametri (richiesta 10).
+     *
+     * @return Stringa contenente i cluster caricati, {@code null} se sono stati inviati al client a blocchi.
      *
      * @throws ServerException Eccezione lanciata in caso di errore.
      */
-    public String learningFromFile() throws ServerException {
-        String result = "file not found.\n";
-
+    public String learningFromFile(boolean withParameters) throws ServerException {
+        Writer result = null;
         try {
             String tableName = (String) in.readObject();
-            Data data = new Data(tableName);
             String numberOfIterations = in.readObject().toString();
-            String fileName = ".\\KmeansBase\\src\\main\\java\\org\\example\\KmeansServer\\saves/" + tableName + "_" + numberOfIterations + ".dat";
+            Map<String, Object> parameters = withParameters ? readParameters() : new HashMap<>();
+            result = openResult(parameters);
+            Data data = new Data(tableName);
+            String fileName = SAVES_DIRECTORY + tableName + "_" + numberOfIterations + ".dat";
 
-            kmeans = new KmeansMiner(fileName);
+            KmeansMiner kmeans = new KmeansMiner(fileName);
+            kmeans.encodeCentroids(data);
             kmeans.save(fileName);
-            result = kmeans.getC().toString(data);
+            setClustering(kmeans, data, decay);
+            kmeans.getC().write(result, data);
+            return closeResult(result, true);
         } catch (IOException | ClassNotFoundException e) {
             System.out.println("Error: " + e.getMessage());
+            if (result instanceof ChunkedResultWriter)
+                return failResult(result, "file not found.");
+            return "file not found.\n";
+        } catch (IllegalArgumentException e) {
+            return failResult(result, "The saved clusters do not match the table: " + e.getMessage());
         } catch (DatabaseConnectionException | NoValueException | SQLException | EmptySetException | ServerException e) {
-            if (e.getMessage().contains("You have an error in your SQL syntax")) {
-                try {
-                    in.readObject();
-                } catch (IOException | ClassNotFoundException e1) {
-                    System.out.println("Error: " + e1.getMessage());
-                }
-                throw new ServerException("You have an error in your SQL syntax");
+            if (e.getMessage().contains("You have an error in your SQL syntax"))
+                return failResult(result, "You have an error in your SQL syntax");
+            return failResult(result, e.getMessage());
+        }
+    }
+
+    //7
+
+    /**
+     * Metodo che aggiorna l'ultimo clustering calcolato o caricato con le transazioni inviate dal client,
+     * senza rileggere la tabella. Ogni transazione è una lista con un valore per ogni attributo della tabella;
+     * una lista vuota restituisce lo stato corrente dei cluster.
+     *
+     * @param rows Lista delle transazioni ricevute.
+     *
+     * @return Stringa contenente il numero di transazioni ricevute, il tempo medio di aggiornamento e i cluster aggiornati.
+     *
+     * @throws ServerException Eccezione lanciata se non c'è un clustering da aggiornare o se una transazione non è valida.
+     */
+    public String learningOnline(Object rows) throws ServerException {
+        if (kmeans == null || data == null)
+            throw new ServerException("No clustering to update");
+        if (!(rows instanceof List))
+            throw new ServerException("Invalid examples");
+        if (online == null) {
+            try {
+                online = new OnlineKmeans(kmeans, data, decay);
+            } catch (IllegalArgumentException e) {
+                throw new ServerException(e.getMessage());
             }
-            throw new ServerException(e.getMessage());
+        }
+
+        for (Object row : (List<?>) rows) {
+            if (!(row instanceof List) || ((List<?>) row).size() != data.getNumberOfAttributes())
+                throw new ServerException("Invalid example: " + row);
+            Example example = new Example();
+            for (Object value : (List<?>) row)
+                example.add(value);
+            try {
+                online.add(example);
+            } catch (IllegalArgumentException e) {
+                throw new ServerException(e.getMessage());
+            }
+        }
+        return "\nExamples added: " + online.getNumberOfExamples() + "\n" +
+                String.format("Average update time: %.2f us\n", online.getAverageUpdateTime()) +
+                online.toString();
+    }
+
+    //8
 
+    /**
+     * Metodo che riprende un clustering salvato: ne usa i centroidi come centroidi iniziali sul contenuto corrente
+     * della tabella, esegue K-means fino alla convergenza e salva il risultato come nuova versione, senza sovrascrivere
+     * le precedenti. Le versioni di un clustering sono salvate nei file {@code <tabella>_<k>_v<n>.dat}; viene ripresa
+     * la versione più recente o, se non ce ne sono, il file salvato dalla richiesta 1.
+     *
+     * @return Stringa contenente la versione salvata e i risultati dell'algoritmo di clustering, {@code null} se sono
+     * stati inviati al client a blocchi.
+     *
+     * @throws ServerException Eccezione lanciata in caso di errore o di parametro non valido.
+     */
+    public String relearningFromFile() throws ServerException {
+        Writer result = null;
+        try {
+            String tableName = (String) in.readObject();
+            String numberOfClusters = in.readObject().toString();
+            Map<String, Object> parameters = readParameters();
+            result = openResult(parameters);
+
+            String prefix = SAVES_DIRECTORY + tableName + "_" + numberOfClusters;
+            int version = 1;
+            while (new File(prefix + "_v" + version + ".dat").exists())
+                version++;
+            String fileName = version == 1 ? prefix + ".dat" : prefix + "_v" + (version - 1) + ".dat";
+
+            Data data = new Data(tableName);
+            KmeansMiner kmeans = new KmeansMiner(fileName);
+            configure(kmeans, parameters, data.getNumberOfExamples());
+            double decay = decayParameter(parameters);
+            int numberOfIterations = kmeans.warmStart(data);
+            String versionName = prefix + "_v" + version + ".dat";
+            kmeans.save(versionName);
+            setClustering(kmeans, data, decay);
+            result.write("\nLoaded from: " + fileName + "\n" +
+                    "Saved as: " + versionName + "\n");
+            report(result, data, numberOfIterations);
+            return closeResult(result, true);
+        } catch (FileNotFoundException e) {
+            return failResult(result, "file not found.");
+        } catch (IOException | ClassNotFoundException e) {
+            return failResult(result, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return failResult(result, "The saved clusters do not match the table: " + e.getMessage());
+        } catch (DatabaseConnectionException | NoValueException | SQLException | EmptySetException e) {
+            if (e.getMessage().contains("You have an error in your SQL syntax"))
+                return failResult(result, "You have an error in your SQL syntax");
+            return failResult(result, e.getMessage());
+        }
+    }
+
+    //9
+
+    /**
+     * Metodo che legge dal client il numero minimo e massimo di cluster e la mappa dei parametri, carica la tabella
+     * una sola volta ed esegue K-means in parallelo per ogni numero di cluster dell'intervallo. Restituisce, al posto
+     * dei cluster, una tabella con la distanza complessiva, la distanza media dei cluster, il numero d'iterazioni
+     * e gli indici di qualità per ogni k, da cui scegliere il numero di cluster con il metodo del gomito. I parametri sono quelli descritti
+     * in {@link #learningFromDb(String, int, Map)}, tranne {@code decay} e {@code stream}, che vengono ignorati;
+     * il clustering corrente, con il suo fattore di oblio, non viene modificato né salvato.
+     *
+     * @param tableName Nome della tabella da cui estrarre i dati.
+     *
+     * @return Stringa contenente la tabella dei risultati.
+     *
+     * @throws IOException Eccezione lanciata in caso di errore d'I/O.
+     * @throws ClassNotFoundException Eccezione lanciata se la classe dell'oggetto ricevuto non viene trovata.
+     * @throws ServerException Eccezione lanciata in caso di errore o di parametro non valido.
+     */
+    public String learningSweep(String tableName) throws IOException, ClassNotFoundException, ServerException {
+        int minK = (Integer) in.readObject();
+        int maxK = (Integer) in.readObject();
+        Map<String, Object> parameters = readParameters();
+        try {
+            Data data = new Data(tableName);
+            if (minK < 1 || minK > maxK)
+                throw new ServerException("Invalid range of clusters: " + minK + "-" + maxK);
+            if (maxK > data.getNumberOfExamples())
+                throw new ServerException("Number of clusters is greater than number of examples");
+
+            KmeansMiner sweep = new KmeansMiner(maxK);
+            configure(sweep, parameters, data.getNumberOfExamples());
+            List<SweepPoint> points = sweep.sweep(data, minK, maxK);
+            StringBuilder result = new StringBuilder("\nSeed: " + sweep.getSeed() + "\n" +
+                    "Seeding time: " + sweep.getSeedingTime() + " ms\n" +
+                    "Clustering time: " + sweep.getClusteringTime() + " ms\n" +
+                    "k\tTotal distance\tAvg cluster distance\tIterations\tSilhouette\tDavies-Bouldin\tCalinski-Harabasz\n");
+            for (SweepPoint point : points)
+                result.append(point).append("\n");
+            return result.toString();
+        } catch (OutofRangeSampleSize e) {
+            throw new ServerException(e.getMessage());
+        } catch (DatabaseConnectionException | NoValueException | SQLException | EmptySetException e) {
+            if (e.getMessage().contains("You have an error in your SQL syntax"))
+                throw new ServerException("You have an error in your SQL syntax");
+            throw new ServerException(e.getMessage());
         }
-        return result;
     }
 }